@@ -131,7 +131,7 @@ class BlockEventHandler implements Listener {
 		}
 
 		// never burn claimed blocks, regardless of settings
-		if (this.dataStore.getClaimAt(burnEvent.getBlock().getLocation(), false) != null) {
+		if (this.dataStore.getClaimAt(burnEvent.getBlock(), false) != null) {
 			burnEvent.setCancelled(true);
 		}
 	}
@@ -155,8 +155,7 @@ class BlockEventHandler implements Listener {
 
 		// where to?
 		final Block toBlock = spreadEvent.getToBlock();
-		final Location toLocation = toBlock.getLocation();
-		final Claim toClaim = this.dataStore.getClaimAt(toLocation, false, this.lastSpreadClaim);
+		final Claim toClaim = this.dataStore.getClaimAt(toBlock, false, this.lastSpreadClaim);
 
 		// if into a land claim, it must be from the same land claim
 		if (toClaim != null) {
@@ -212,7 +211,7 @@ class BlockEventHandler implements Listener {
 				return;
 			}
 
-			if ((this.dataStore.getClaimAt(pistonBlock.getLocation(), false) == null) && (this.dataStore.getClaimAt(invadedBlock.getLocation(), false) != null)) {
+			if ((this.dataStore.getClaimAt(pistonBlock, false) == null) && (this.dataStore.getClaimAt(invadedBlock, false) != null)) {
 				event.setCancelled(true);
 			}
 
@@ -221,7 +220,7 @@ class BlockEventHandler implements Listener {
 
 		// who owns the piston, if anyone?
 		String pistonClaimOwnerName = "_";
-		Claim claim = this.dataStore.getClaimAt(event.getBlock().getLocation(), false);
+		Claim claim = this.dataStore.getClaimAt(event.getBlock(), false);
 		if (claim != null) {
 			pistonClaimOwnerName = claim.getOwnerName();
 		}
@@ -263,7 +262,7 @@ class BlockEventHandler implements Listener {
 				// if ANY of the pushed blocks are owned by someone other than
 				// the piston owner, cancel the event
 				final Block block = blocks.get(i);
-				claim = this.dataStore.getClaimAt(block.getLocation(), false, cachedClaim);
+				claim = this.dataStore.getClaimAt(block, false, cachedClaim);
 				if (claim != null) {
 					cachedClaim = claim;
 					if (!claim.getOwnerName().equals(pistonClaimOwnerName)) {
@@ -280,14 +279,14 @@ class BlockEventHandler implements Listener {
 			// cancel the event
 			for (int i = 0; i < blocks.size(); i++) {
 				final Block block = blocks.get(i);
-				final Claim originalClaim = this.dataStore.getClaimAt(block.getLocation(), false, cachedClaim);
+				final Claim originalClaim = this.dataStore.getClaimAt(block, false, cachedClaim);
 				String originalOwnerName = "";
 				if (originalClaim != null) {
 					cachedClaim = originalClaim;
 					originalOwnerName = originalClaim.getOwnerName();
 				}
 
-				final Claim newClaim = this.dataStore.getClaimAt(block.getRelative(event.getDirection()).getLocation(), false, cachedClaim);
+				final Claim newClaim = this.dataStore.getClaimAt(block.getRelative(event.getDirection()), false, cachedClaim);
 				String newOwnerName = "";
 				if (newClaim != null) {
 					newOwnerName = newClaim.getOwnerName();
@@ -338,7 +337,7 @@ class BlockEventHandler implements Listener {
 		// the piston is in
 		if (GriefPreventionPlus.getInstance().config.pistonsInClaimsOnly) {
 			// if piston not in a land claim, cancel event
-			final Claim pistonClaim = this.dataStore.getClaimAt(event.getBlock().getLocation(), false);
+			final Claim pistonClaim = this.dataStore.getClaimAt(event.getBlock(), false);
 			if (pistonClaim == null) {
 				event.setCancelled(true);
 				return;
@@ -362,8 +361,7 @@ class BlockEventHandler implements Listener {
 
 			// who owns the piston, if anyone?
 			String pistonOwnerName = "_";
-			final Location pistonLocation = event.getBlock().getLocation();
-			final Claim pistonClaim = this.dataStore.getClaimAt(pistonLocation, false, movingBlockClaim);
+			final Claim pistonClaim = this.dataStore.getClaimAt(event.getBlock(), false, movingBlockClaim);
 			if (pistonClaim != null) {
 				pistonOwnerName = pistonClaim.getOwnerName();
 			}
@@ -421,7 +419,7 @@ class BlockEventHandler implements Listener {
 
 		// if the block is being placed within or under an existing claim
 		final PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-		final Claim claim = this.dataStore.getClaimAt(block.getLocation(), false, playerData.lastClaim);
+		final Claim claim = this.dataStore.getClaimAt(block, false, playerData.lastClaim);
 		if (claim != null) {
 			// warn about TNT not destroying claimed blocks
 			if ((block.getType() == Material.TNT) && !claim.areExplosivesAllowed()) {
@@ -475,7 +473,7 @@ class BlockEventHandler implements Listener {
 					GriefPreventionPlus.sendMessage(player, TextMode.Success, Messages.AutomaticClaimNotification);
 
 					// show the player the protected area
-					final Claim newClaim = this.dataStore.getClaimAt(block.getLocation());
+					final Claim newClaim = this.dataStore.getClaimAt(block, true, null);
 					final Visualization visualization = Visualization.FromClaim(newClaim, block.getY(), VisualizationType.Claim, player.getLocation());
 					Visualization.Apply(player, visualization);
 				}
@@ -484,7 +482,7 @@ class BlockEventHandler implements Listener {
 			}
 
 			// check to see if this chest is in a claim, and warn when it isn't
-			if (GriefPreventionPlus.getInstance().config.claims_preventTheft && (this.dataStore.getClaimAt(block.getLocation(), false, playerData.lastClaim) == null)) {
+			if (GriefPreventionPlus.getInstance().config.claims_preventTheft && (this.dataStore.getClaimAt(block, false, playerData.lastClaim) == null)) {
 				GriefPreventionPlus.sendMessage(player, TextMode.Warn, Messages.UnprotectedChestWarning);
 			}
 		}
@@ -588,7 +586,7 @@ class BlockEventHandler implements Listener {
 		}
 
 		// never spread into a claimed area, regardless of settings
-		if (this.dataStore.getClaimAt(spreadEvent.getBlock().getLocation(), false) != null) {
+		if (this.dataStore.getClaimAt(spreadEvent.getBlock(), false) != null) {
 			spreadEvent.setCancelled(true);
 
 			// if the source of the spread is not fire on netherrack, put out
@@ -615,8 +613,8 @@ class BlockEventHandler implements Listener {
 
 		// to where?
 		final Block toBlock = fromBlock.getRelative(dispenser.getFacing());
-		final Claim fromClaim = this.dataStore.getClaimAt(fromBlock.getLocation(), false);
-		final Claim toClaim = this.dataStore.getClaimAt(toBlock.getLocation(), false, fromClaim);
+		final Claim fromClaim = this.dataStore.getClaimAt(fromBlock, false);
+		final Claim toClaim = this.dataStore.getClaimAt(toBlock, false, fromClaim);
 
 		// into wilderness is NOT OK in creative mode worlds
 		final Material materialDispensed = dispenseEvent.getItem().getType();
@@ -692,7 +690,7 @@ class BlockEventHandler implements Listener {
 		// for each block growing
 		for (int i = 0; i < growEvent.getBlocks().size(); i++) {
 			final BlockState block = growEvent.getBlocks().get(i);
-			final Claim blockClaim = this.dataStore.getClaimAt(block.getLocation(), false, rootClaim);
+			final Claim blockClaim = this.dataStore.getClaimAt(block.getWorld(), block.getX(), block.getY(), block.getZ(), false, rootClaim);
 
 			// if it's growing into a claim
 			if (blockClaim != null) {
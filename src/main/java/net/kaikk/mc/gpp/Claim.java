@@ -20,12 +20,15 @@
 package net.kaikk.mc.gpp;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -45,10 +48,16 @@ import org.bukkit.entity.Player;
 public class Claim {
 	// id number. unique to this claim, never changes.
 	Integer id;
+	// gpp.c<id>.<node> bukkit permissions, by ClaimPermission ordinal. built on the first permission check
+	private volatile String[] permissionNodes;
 
 	// Coordinates
 	private UUID world;
-	int lesserX, lesserZ, greaterX, greaterZ; // corners
+	// corners. lookups from other threads must go through containsColumn() or
+	// read them between two cornersVersion checks, see cornersChanged()
+	volatile int lesserX, lesserZ, greaterX, greaterZ;
+	// odd while setLocation() is writing the corners
+	volatile int cornersVersion;
 
 	// ownerID. for admin claims, this is NULL
 	// use getOwnerName() to get a friendly name (will be "an administrator" for
@@ -57,12 +66,16 @@ public class Claim {
 
 	// modification date. this comes from the file timestamp during load, and is
 	// updated with runtime changes
-	private Date modifiedDate;
+	private long modifiedDate;
 
 	// permissions for this claim
-	private final HashMap<UUID, Integer> permissionMapPlayers = new HashMap<UUID, Integer>();
-	private final HashMap<String, Integer> permissionMapBukkit = new HashMap<String, Integer>();
-	private final HashMap<String, Integer> permissionMapFakePlayer = new HashMap<String, Integer>();
+	// most claims have no trust at all: maps are null until they get their first entry
+	// copy on write: a published map is never changed, changes replace it
+	private volatile HashMap<UUID, Integer> permissionMapPlayers;
+	private volatile HashMap<String, Integer> permissionMapBukkit;
+	private volatile HashMap<String, Integer> permissionMapFakePlayer;
+	// prefix trie over permissionMapFakePlayer, built on first use and rebuilt when the map is replaced
+	private volatile FakePlayerTrie fakePlayerTrie;
 
 	private boolean areExplosivesAllowed = false;
 
@@ -72,14 +85,29 @@ public class Claim {
 
 	// children (subdivisions)
 	// note subdivisions themselves never have children
-	private ArrayList<Claim> children = new ArrayList<Claim>();
+	// immutable, replaced on every change so it can be read from any thread
+	private volatile List<Claim> children = Collections.emptyList();
 
-	private final List<Material> placeableFarmingBlocksList = Arrays.asList(Material.PUMPKIN_STEM, Material.CROPS, Material.MELON_STEM, Material.CARROT, Material.POTATO, Material.NETHER_WARTS);
+	// spatial index of the children, built lazily for the current subdivisionsVersion
+	private volatile SubdivisionIndex subdivisionIndex;
+	// odd while the children, or the corners of this claim or of a child, are being changed
+	private volatile int subdivisionsVersion;
+
+	private static final EnumSet<Material> placeableFarmingBlocks = EnumSet.of(Material.PUMPKIN_STEM, Material.CROPS, Material.MELON_STEM, Material.CARROT, Material.POTATO, Material.NETHER_WARTS);
 
 	long autoTrust;
+
+	// getEffectivePermissions() bit: entry trust is allowed by default on this claim
+	public static final int ENTRY_BY_DEFAULT = 32;
+
+	// incremented on every permission or owner change
+	private volatile int permissionEpoch;
 	
 	private long creationDate;
 
+	// canonical world UUID instances
+	private static final ConcurrentHashMap<UUID, UUID> internedWorlds = new ConcurrentHashMap<UUID, UUID>();
+
 	Claim(Location lesserCorner, Location greaterCorner, UUID ownerID, HashMap<UUID, Integer> permissionMapPlayers, HashMap<String, Integer> permissionMapBukkit, HashMap<String, Integer> permissionMapFakePlayer, Integer id) {
 		this(lesserCorner.getWorld().getUID(), lesserCorner.getBlockX(), lesserCorner.getBlockZ(), greaterCorner.getBlockX(), greaterCorner.getBlockZ(), ownerID, permissionMapPlayers, permissionMapBukkit, permissionMapFakePlayer, id);
 	}
@@ -91,11 +119,11 @@ public class Claim {
 	// main constructor. note that only creating a claim instance does nothing -
 	// a claim must be added to the data store to be effective
 	Claim(UUID world, int lesserX, int lesserZ, int greaterX, int greaterZ, UUID ownerID, HashMap<UUID, Integer> permissionMapPlayers, HashMap<String, Integer> permissionMapBukkit, HashMap<String, Integer> permissionMapFakePlayer, Integer id, long creationDate) {
-		this.setModifiedDate(new Date());
+		this.modifiedDate = System.currentTimeMillis();
 
-		this.id = id;
+		this.setID(id);
 
-		this.world = world;
+		this.world = internWorld(world);
 		this.lesserX = lesserX;
 		this.lesserZ = lesserZ;
 		this.greaterX = greaterX;
@@ -105,15 +133,15 @@ public class Claim {
 
 		// owner
 		this.setOwnerID(ownerID);
-		if (permissionMapPlayers != null) {
-			this.permissionMapPlayers.putAll(permissionMapPlayers);
+		if ((permissionMapPlayers != null) && !permissionMapPlayers.isEmpty()) {
+			this.permissionMapPlayers = new HashMap<UUID, Integer>(permissionMapPlayers);
 		}
-		if (permissionMapBukkit != null) {
-			this.permissionMapBukkit.putAll(permissionMapBukkit);
+		if ((permissionMapBukkit != null) && !permissionMapBukkit.isEmpty()) {
+			this.permissionMapBukkit = new HashMap<String, Integer>(permissionMapBukkit);
 		}
 
-		if (permissionMapFakePlayer != null) {
-			this.permissionMapFakePlayer.putAll(permissionMapFakePlayer);
+		if ((permissionMapFakePlayer != null) && !permissionMapFakePlayer.isEmpty()) {
+			this.permissionMapFakePlayer = new HashMap<String, Integer>(permissionMapFakePlayer);
 		}
 	}
 
@@ -173,133 +201,40 @@ public class Claim {
 
 	// entry permission check
 	public String canEnter(Player player) {
-		// admin claims need adminclaims permission only.
-		if (this.isAdminClaim()) {
-			if (player.hasPermission("griefprevention.adminclaims")) {
-				return null;
-			}
-		}
+		return this.checkEnter(player).getMessage();
+	}
 
+	/** entry permission check. the message is formatted only if requested */
+	public PermissionResult checkEnter(Player player) {
 		// players with this permission node can always enter the claim
 		if (player.hasPermission("griefprevention.bypassentryprotection")) {
-			return null;
-		}
-
-		// claim owner and admins in ignoreclaims mode have access
-		if (player.getUniqueId().equals(this.getOwnerID()) || GriefPreventionPlus.getInstance().getDataStore().getPlayerData(player.getUniqueId()).ignoreClaims) {
-			return null;
-		}
-
-		// if the entry trust mode is "allow by default", allow any player if there is no entry trust entry set
-		if (GriefPreventionPlus.getInstance().config.entryTrustAllowByDefault && !this.hasExplicitEntryTrustEntry()) {
-			return null;
-		}
-
-		// look for explicit (or public) individual access, inventory, or build
-		// permission
-		if (this.hasExplicitPermission(player, ClaimPermission.MANAGE)) {
-			return null;
-		}
-		if (this.hasExplicitPermission(player, ClaimPermission.BUILD)) {
-			return null;
-		}
-		if (this.hasExplicitPermission(player, ClaimPermission.ENTRY)) {
-			return null;
-		}
-		if (this.hasExplicitPermission(player, ClaimPermission.ACCESS)) {
-			return null;
-		}
-		if (this.hasExplicitPermission(player, ClaimPermission.CONTAINER)) {
-			return null;
-		}
-
-
-		// also check for public permission
-		if (this.hasPublicPermission(ClaimPermission.MANAGE)) {
-			return null;
-		}
-		if (this.hasPublicPermission(ClaimPermission.BUILD)) {
-			return null;
-		}
-		if (this.hasPublicPermission(ClaimPermission.ENTRY)) {
-			return null;
-		}
-		if (this.hasPublicPermission(ClaimPermission.ACCESS)) {
-			return null;
-		}
-		if (this.hasPublicPermission(ClaimPermission.CONTAINER)) {
-			return null;
+			return PermissionResult.ALLOWED;
 		}
 
-
-		// permission inheritance for subdivisions
-		if (this.getParent() != null) {
-			return this.getParent().canEnter(player);
+		// look for explicit (or public) individual entry, access, inventory, build or
+		// manage permission, or entry allowed by default, on this claim or its parent
+		if ((this.getEffectivePermissions(player) & (ClaimPermission.ALL | ENTRY_BY_DEFAULT)) != 0) {
+			return PermissionResult.ALLOWED;
 		}
 
-		// catch-all error message for all other cases
-		String reason = GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.NoEntryPermission, this.getOwnerName());
-		if (player.hasPermission("griefprevention.ignoreclaims")) {
-			reason += "  " + GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.IgnoreClaimsAdvertisement);
-		}
-		return reason;
+		return new PermissionResult(PermissionResult.Reason.NO_ENTRY, this, player);
 	}
 
 
 	// access permission check
 	public String canAccess(Player player) {
-		// admin claims need adminclaims permission only.
-		if (this.isAdminClaim()) {
-			if (player.hasPermission("griefprevention.adminclaims")) {
-				return null;
-			}
-		}
-
-		// claim owner and admins in ignoreclaims mode have access
-		if (player.getUniqueId().equals(this.getOwnerID()) || GriefPreventionPlus.getInstance().getDataStore().getPlayerData(player.getUniqueId()).ignoreClaims) {
-			return null;
-		}
-
-		// look for explicit (or public) individual access, inventory, or build
-		// permission
-		if (this.hasExplicitPermission(player, ClaimPermission.ACCESS)) {
-			return null;
-		}
-		if (this.hasExplicitPermission(player, ClaimPermission.CONTAINER)) {
-			return null;
-		}
-		if (this.hasExplicitPermission(player, ClaimPermission.BUILD)) {
-			return null;
-		}
-		if (this.hasExplicitPermission(player, ClaimPermission.MANAGE)) {
-			return null;
-		}
-
-		// also check for public permission
-		if (this.hasPublicPermission(ClaimPermission.ACCESS)) {
-			return null;
-		}
-		if (this.hasPublicPermission(ClaimPermission.CONTAINER)) {
-			return null;
-		}
-		if (this.hasPublicPermission(ClaimPermission.BUILD)) {
-			return null;
-		}
-		if (this.hasPublicPermission(ClaimPermission.MANAGE)) {
-			return null;
-		}
+		return this.checkAccess(player).getMessage();
+	}
 
-		// permission inheritance for subdivisions
-		if (this.getParent() != null) {
-			return this.getParent().canAccess(player);
+	/** access permission check. the message is formatted only if requested */
+	public PermissionResult checkAccess(Player player) {
+		// look for explicit (or public) individual access, inventory, build or
+		// manage permission on this claim or its parent
+		if ((this.getEffectivePermissions(player) & (ClaimPermission.ACCESS.perm | ClaimPermission.CONTAINER.perm | ClaimPermission.BUILD.perm | ClaimPermission.MANAGE.perm)) != 0) {
+			return PermissionResult.ALLOWED;
 		}
 
-		// catch-all error message for all other cases
-		String reason = GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.NoAccessPermission, this.getOwnerName());
-		if (player.hasPermission("griefprevention.ignoreclaims")) {
-			reason += "  " + GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.IgnoreClaimsAdvertisement);
-		}
-		return reason;
+		return new PermissionResult(PermissionResult.Reason.NO_ACCESS, this, player);
 	}
 
 	// break permission check
@@ -314,81 +249,55 @@ public class Claim {
 
 	// build permission check
 	public String canBuild(Player player, Material material) {
+		return this.checkBuild(player, material).getMessage();
+	}
+
+	/** build permission check. the message is formatted only if requested */
+	public PermissionResult checkBuild(Player player, Material material) {
 		// if we don't know who's asking, always say no (i've been told some
 		// mods can make this happen somehow)
 		if (player == null) {
-			return "";
-		}
-
-		// admin claims can always be modified by admins, no exceptions
-		if (this.isAdminClaim()) {
-			if (player.hasPermission("griefprevention.adminclaims")) {
-				return null;
-			}
-		}
-
-		// owners can make changes, or admins with ignore claims mode enabled
-		if (player.getUniqueId().equals(this.getOwnerID()) || GriefPreventionPlus.getInstance().getDataStore().getPlayerData(player.getUniqueId()).ignoreClaims) {
-			return null;
-		}
-
-		// anyone with explicit build permission can make changes
-		if (this.hasExplicitPermission(player, ClaimPermission.BUILD)) {
-			return null;
-		}
-		//Managers should be able to build as well :/
-		if (this.hasExplicitPermission(player, ClaimPermission.MANAGE)) {
-			return null;
+			return PermissionResult.UNKNOWN_PLAYER;
 		}
 
-		// check for public permission
-		if (this.hasPublicPermission(ClaimPermission.BUILD)) {
-			return null;
-		}
+		// anyone with explicit (or public) build or manage permission on this claim or its parent can make changes
 		//Managers should be able to build as well :/
-		if (this.hasPublicPermission(ClaimPermission.MANAGE)) {
-			return null;
+		final int permissions = this.getEffectivePermissions(player);
+		if ((permissions & (ClaimPermission.BUILD.perm | ClaimPermission.MANAGE.perm)) != 0) {
+			return PermissionResult.ALLOWED;
 		}
 
-		// subdivision permission inheritance
-		if (this.getParent() != null) {
-			return this.getParent().canBuild(player, material);
-		}
+		// autotrust and farming are checked on the top level claim
+		final Claim topClaim = this.parent != null ? this.parent : this;
 
 		// autotrust
-		if (System.currentTimeMillis()<this.autoTrust) {
-			this.autoTrust = 0;
+		if (System.currentTimeMillis()<topClaim.autoTrust) {
+			topClaim.autoTrust = 0;
 			String trustMessage;
 			if (Utils.isFakePlayer(player)) {
-				this.setPermission("#"+player.getName(), ClaimPermission.BUILD);
-				trustMessage = ChatColor.GREEN+"Fake player #"+player.getName()+" has been automatically trusted in your claim id "+this.getID();
+				topClaim.setPermission("#"+player.getName(), ClaimPermission.BUILD);
+				trustMessage = ChatColor.GREEN+"Fake player #"+player.getName()+" has been automatically trusted in your claim id "+topClaim.getID();
 			} else {
-				this.setPermission(player.getUniqueId(), ClaimPermission.BUILD);
-				trustMessage = ChatColor.GREEN+"Player "+ChatColor.RED+player.getName()+ChatColor.GREEN+" has been automatically trusted in your claim id "+this.getID();
+				topClaim.setPermission(player.getUniqueId(), ClaimPermission.BUILD);
+				trustMessage = ChatColor.GREEN+"Player "+ChatColor.RED+player.getName()+ChatColor.GREEN+" has been automatically trusted in your claim id "+topClaim.getID();
 			}
 
-			Player owner = Bukkit.getPlayer(this.getOwnerID());
+			Player owner = Bukkit.getPlayer(topClaim.getOwnerID());
 			if (owner!=null) {
 				owner.sendMessage(trustMessage);
 			}
-			return null;
-		}
-
-		// failure message for all other cases
-		String reason = GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.NoBuildPermission, this.getOwnerName());
-		if (player.hasPermission("griefprevention.ignoreclaims")) {
-			reason += "  " + GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.IgnoreClaimsAdvertisement);
+			return PermissionResult.ALLOWED;
 		}
 
-		// allow for farming with /containertrust permission
-		if ((reason != null) && (this.canOpenContainers(player) == null)) {
-			// do allow for farming, if player has /containertrust permission
-			if (this.placeableForFarming(material)) {
-				return null;
+		// allow for farming with /containertrust permission on the top level claim
+		if (this.placeableForFarming(material)) {
+			final int topPermissions = topClaim == this ? permissions : topClaim.getEffectivePermissions(player);
+			if ((topPermissions & (ClaimPermission.CONTAINER.perm | ClaimPermission.BUILD.perm | ClaimPermission.MANAGE.perm)) != 0) {
+				return PermissionResult.ALLOWED;
 			}
 		}
 
-		return reason;
+		return new PermissionResult(PermissionResult.Reason.NO_BUILD, this, player);
 	}
 
 	// permissions. note administrative "public" claims have different rules
@@ -472,57 +381,93 @@ public class Claim {
 
 	// inventory permission check
 	public String canOpenContainers(Player player) {
+		return this.checkOpenContainers(player).getMessage();
+	}
+
+	/** inventory permission check. the message is formatted only if requested */
+	public PermissionResult checkOpenContainers(Player player) {
 		// if we don't know who's asking, always say no (i've been told some
 		// mods can make this happen somehow)
 		if (player == null) {
-			return "";
+			return PermissionResult.UNKNOWN_PLAYER;
 		}
 
-		// owner and administrators in ignoreclaims mode have access
-		if (player.getUniqueId().equals(this.getOwnerID()) || GriefPreventionPlus.getInstance().getDataStore().getPlayerData(player.getUniqueId()).ignoreClaims) {
-			return null;
+		// check for explicit (or public) container, build or manage permission on this claim or its parent
+		if ((this.getEffectivePermissions(player) & (ClaimPermission.CONTAINER.perm | ClaimPermission.BUILD.perm | ClaimPermission.MANAGE.perm)) != 0) {
+			return PermissionResult.ALLOWED;
 		}
 
-		// admin claims need adminclaims permission only.
-		if (this.isAdminClaim()) {
-			if (player.hasPermission("griefprevention.adminclaims")) {
-				return null;
-			}
-		}
+		return new PermissionResult(PermissionResult.Reason.NO_CONTAINERS, this, player);
+	}
 
-		// check for explicit individual container or build permission
-		if (this.hasExplicitPermission(player, ClaimPermission.CONTAINER)) {
-			return null;
-		}
-		if (this.hasExplicitPermission(player, ClaimPermission.BUILD)) {
-			return null;
-		}
-		if (this.hasExplicitPermission(player, ClaimPermission.MANAGE)) {
-			return null;
+	/** computes all the permissions of a player on this claim in a single pass,
+	 *  including the ones inherited from the parent claim
+	 *  @return a ClaimPermission bitmask, plus ENTRY_BY_DEFAULT. owners, players ignoring claims
+	 *  and admins on admin claims get all the permissions */
+	public int getEffectivePermissions(Player player) {
+		final UUID playerID = player.getUniqueId();
+		final PlayerData playerData = GriefPreventionPlus.getInstance().getDataStore().getPlayerData(playerID);
+
+		// claim owner and admins in ignoreclaims mode have all permissions
+		if (playerID.equals(this.getOwnerID()) || playerData.ignoreClaims) {
+			return ClaimPermission.ALL | ENTRY_BY_DEFAULT;
 		}
 
-		// check for public container or build permission
-		if (this.hasPublicPermission(ClaimPermission.CONTAINER)) {
-			return null;
+		return playerData.getCachedPermissions(this, player);
+	}
+
+	/** getEffectivePermissions() without the owner, ignoreclaims and cache checks */
+	int computeEffectivePermissions(Player player) {
+		// admin claims need adminclaims permission only.
+		if (this.isAdminClaim() && player.hasPermission("griefprevention.adminclaims")) {
+			return ClaimPermission.ALL | ENTRY_BY_DEFAULT;
 		}
-		if (this.hasPublicPermission(ClaimPermission.BUILD)) {
-			return null;
+
+		// permission inheritance for subdivisions
+		int permissions = 0;
+		for (Claim claim = this; claim != null; claim = claim.parent) {
+			permissions |= claim.getOwnPermissions(player);
 		}
-		if (this.hasPublicPermission(ClaimPermission.MANAGE)) {
-			return null;
+		return permissions;
+	}
+
+	/** changes every time permissions on this claim or on its parent change
+	 *  used to invalidate the players' permissions caches */
+	int getPermissionEpoch() {
+		return this.parent != null ? this.permissionEpoch + this.parent.permissionEpoch : this.permissionEpoch;
+	}
+
+	/** the explicit and public permissions of a player on this claim, without inheritance */
+	private int getOwnPermissions(Player player) {
+		// explicit and public individual permissions
+		int permissions = (this.getPermission(player.getUniqueId()) | this.getPermission(GriefPreventionPlus.UUID0)) & ClaimPermission.ALL;
+
+		// if the entry trust mode is "allow by default", allow any player if there is no entry trust entry set
+		if (GriefPreventionPlus.getInstance().config.entryTrustAllowByDefault && !this.hasExplicitEntryTrustEntry()) {
+			permissions |= ENTRY_BY_DEFAULT;
 		}
 
-		// permission inheritance for subdivisions
-		if (this.getParent() != null) {
-			return this.getParent().canOpenContainers(player);
+		// default permissionBukkit permissions, like gpp.c<claimid>.b
+		for (final ClaimPermission level : ClaimPermission.values()) {
+			if ((permissions & level.perm) == 0) {
+				final String node = this.getPermissionNode(level);
+				if (player.isPermissionSet(node) && player.hasPermission(node)) {
+					permissions |= level.perm;
+				}
+			}
 		}
 
-		// error message for all other cases
-		String reason = GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.NoContainersPermission, this.getOwnerName());
-		if (player.hasPermission("griefprevention.ignoreclaims")) {
-			reason += "  " + GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.IgnoreClaimsAdvertisement);
+		// explicit permissionBukkit permissions
+		for (final Entry<String, Integer> e : orEmpty(this.permissionMapBukkit).entrySet()) {
+			if (((e.getValue() & ~permissions & ClaimPermission.ALL) != 0) && player.isPermissionSet(e.getKey()) && player.hasPermission(e.getKey())) {
+				permissions |= e.getValue() & ClaimPermission.ALL;
+			}
 		}
-		return reason;
+
+		// trusted fake players
+		permissions |= this.getFakePlayerTrie().match(player.getName()) & ClaimPermission.ALL;
+
+		return permissions;
 	}
 
 	public boolean checkHeight(int y) {
@@ -573,19 +518,23 @@ public class Claim {
 	 * means that locations inside subdivisions of the claim will return FALSE
 	 */
 	public boolean contains(Location location, boolean ignoreHeight, boolean excludeSubdivisions) {
-		// not in the same world implies false
-		if (!location.getWorld().getUID().equals(this.getWorldUID())) {
+		// block coordinates give the same result of the old double compares
+		return this.contains(location.getWorld().getUID(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), ignoreHeight, excludeSubdivisions);
+	}
+
+	/** primitive version of contains(Location, boolean, boolean), it doesn't allocate anything */
+	public boolean contains(UUID world, int x, int y, int z, boolean ignoreHeight, boolean excludeSubdivisions) {
+		// main check
+		if ((x < this.lesserX) || (x > this.greaterX) || (z < this.lesserZ) || (z > this.greaterZ)) {
 			return false;
 		}
 
-		final double x = location.getX();
-		final double y = location.getY();
-		final double z = location.getZ();
-
-		// main check
-		final boolean inClaim = (x >= this.lesserX) && (x < (this.greaterX + 1)) && (z >= this.lesserZ) && (z < (this.greaterZ + 1)) && (ignoreHeight || (y >= GriefPreventionPlus.getInstance().config.claims_maxDepth));
+		// not in the same world implies false
+		if (!sameWorld(world, this.world)) {
+			return false;
+		}
 
-		if (!inClaim) {
+		if (!ignoreHeight && (y < GriefPreventionPlus.getInstance().config.claims_maxDepth)) {
 			return false;
 		}
 
@@ -596,18 +545,13 @@ public class Claim {
 		// a subdivision can reach outside of its parent's boundaries. so this
 		// check is important!
 		if (this.getParent() != null) {
-			return this.getParent().contains(location, ignoreHeight, false);
+			return this.getParent().contains(world, x, y, z, ignoreHeight, false);
 		}
 
 		// code to exclude subdivisions in this check
-		else if (excludeSubdivisions) {
-			// search all subdivisions to see if the location is in any of them
-			for (int i = 0; i < this.getChildren().size(); i++) {
-				// if we find such a subdivision, return false
-				if (this.getChildren().get(i).contains(location, ignoreHeight, true)) {
-					return false;
-				}
-			}
+		// we're already in this claim, so we're in a subdivision if we're in its area
+		else if (excludeSubdivisions && (this.getChildAt(x, z) != null)) {
+			return false;
 		}
 
 		// otherwise yes
@@ -631,10 +575,57 @@ public class Claim {
 		return this.getWidth() * this.getHeight();
 	}
 
-	public ArrayList<Claim> getChildren() {
+	/** @return the subdivisions of this claim. read only: it's a snapshot, later changes replace it */
+	public List<Claim> getChildren() {
 		return this.children;
 	}
 
+	/** adds a subdivision to this claim (this won't affect the database) */
+	void addChild(Claim child) {
+		final List<Claim> children = new ArrayList<Claim>(this.children.size() + 1);
+		children.addAll(this.children);
+		children.add(child);
+		this.subdivisionsVersion++;
+		this.children = Collections.unmodifiableList(children);
+		this.subdivisionsVersion++;
+	}
+
+	/** removes a subdivision from this claim (this won't affect the database) */
+	void removeChild(Claim child) {
+		final List<Claim> children = new ArrayList<Claim>(this.children);
+		if (children.remove(child)) {
+			this.subdivisionsVersion++;
+			this.children = Collections.unmodifiableList(children);
+			this.subdivisionsVersion++;
+		}
+	}
+
+	/** @return the subdivision containing the specified block column, or null
+	 *  the point is expected to be inside this top level claim */
+	Claim getChildAt(int x, int z) {
+		final int version = this.subdivisionsVersion;
+		final List<Claim> children = this.children;
+		if (children.size() < SubdivisionIndex.MIN_CHILDREN) {
+			for (int i = 0; i < children.size(); i++) {
+				final Claim child = children.get(i);
+				if (child.containsColumn(x, z)) {
+					return child;
+				}
+			}
+			return null;
+		}
+
+		SubdivisionIndex index = this.subdivisionIndex;
+		if ((index == null) || (index.version != version) || ((version & 1) != 0)) {
+			index = new SubdivisionIndex(this, children, version);
+			// built while a change was running: use it for this lookup only
+			if (((version & 1) == 0) && (this.subdivisionsVersion == version)) {
+				this.subdivisionIndex = index;
+			}
+		}
+		return index.get(x, z);
+	}
+
 	public ArrayList<Chunk> getChunks() {
 		final ArrayList<Chunk> chunks = new ArrayList<Chunk>();
 
@@ -679,7 +670,7 @@ public class Claim {
 	}
 
 	public Date getModifiedDate() {
-		return this.modifiedDate;
+		return new Date(this.modifiedDate);
 	}
 
 	public UUID getOwnerID() {
@@ -708,9 +699,9 @@ public class Claim {
 
 	// grants a permission for a bukkit permission
 	public Integer getPermission(String target) {
-		Integer perm = this.permissionMapBukkit.get(target);
+		Integer perm = orEmpty(this.permissionMapBukkit).get(target);
 		if (perm == null) {
-			perm = this.permissionMapFakePlayer.get(target);
+			perm = orEmpty(this.permissionMapFakePlayer).get(target);
 			if (perm == null) {
 				perm = 0;
 			}
@@ -720,23 +711,64 @@ public class Claim {
 
 	// grants a permission for a player or the public
 	public Integer getPermission(UUID playerID) {
-		Integer perm = this.permissionMapPlayers.get(playerID);
+		Integer perm = orEmpty(this.permissionMapPlayers).get(playerID);
 		if (perm == null) {
 			perm = 0;
 		}
 		return perm;
 	}
 
-	public HashMap<String, Integer> getPermissionMapBukkit() {
-		return this.permissionMapBukkit;
+	/** @return a read only snapshot of the bukkit permissions. use setPermission() and dropPermission() to change them */
+	public Map<String, Integer> getPermissionMapBukkit() {
+		return readOnly(this.permissionMapBukkit);
+	}
+
+	/** @return a read only snapshot of the players permissions. use setPermission() and dropPermission() to change them */
+	public Map<UUID, Integer> getPermissionMapPlayers() {
+		return readOnly(this.permissionMapPlayers);
 	}
 
-	public HashMap<UUID, Integer> getPermissionMapPlayers() {
-		return this.permissionMapPlayers;
+	/** @return the map, or an empty read only map if it's null */
+	private static <K> Map<K, Integer> orEmpty(HashMap<K, Integer> map) {
+		return map != null ? map : Collections.<K, Integer>emptyMap();
 	}
 
-	public HashMap<String, Integer> getPermissionMapFakePlayers() {
-		return this.permissionMapFakePlayer;
+	/** @return a read only view of the map, or an empty read only map if it's null */
+	private static <K> Map<K, Integer> readOnly(HashMap<K, Integer> map) {
+		return map != null ? Collections.unmodifiableMap(map) : Collections.<K, Integer>emptyMap();
+	}
+
+	/** @return a copy of the map with the permission added to the key's permissions */
+	private static <K> HashMap<K, Integer> withPermission(HashMap<K, Integer> map, K key, int perm) {
+		final HashMap<K, Integer> copy = map != null ? new HashMap<K, Integer>(map) : new HashMap<K, Integer>();
+		copy.merge(key, perm, (a, b) -> a | b);
+		return copy;
+	}
+
+	/** @return a copy of the map without the key, or the same map if the key isn't there */
+	private static <K> HashMap<K, Integer> withoutPermission(HashMap<K, Integer> map, K key) {
+		if ((map == null) || !map.containsKey(key)) {
+			return map;
+		}
+		final HashMap<K, Integer> copy = new HashMap<K, Integer>(map);
+		copy.remove(key);
+		return copy.isEmpty() ? null : copy;
+	}
+
+	/** @return the prefix trie of the trusted fake players, built from the map if it was replaced */
+	FakePlayerTrie getFakePlayerTrie() {
+		final HashMap<String, Integer> map = this.permissionMapFakePlayer;
+		FakePlayerTrie trie = this.fakePlayerTrie;
+		if ((trie == null) || (trie.source != map)) {
+			trie = map == null ? FakePlayerTrie.EMPTY : new FakePlayerTrie(map);
+			this.fakePlayerTrie = trie;
+		}
+		return trie;
+	}
+
+	/** @return a read only snapshot of the fake players permissions. use setPermission() and dropPermission() to change them */
+	public Map<String, Integer> getPermissionMapFakePlayers() {
+		return readOnly(this.permissionMapFakePlayer);
 	}
 
 	/**
@@ -744,7 +776,7 @@ public class Claim {
 	 */
 	public void getPermissions(ArrayList<String> builders, ArrayList<String> containers, ArrayList<String> accessors, ArrayList<String> enters, ArrayList<String> managers) {
 		// loop through all the entries in the hash map
-		for (final Entry<UUID, Integer> entry : this.permissionMapPlayers.entrySet()) {
+		for (final Entry<UUID, Integer> entry : orEmpty(this.permissionMapPlayers).entrySet()) {
 			if (entry.getKey().equals(GriefPreventionPlus.UUID0)) {
 				if ((entry.getValue() & ClaimPermission.MANAGE.perm) != 0) {
 					managers.add("public");
@@ -776,7 +808,7 @@ public class Claim {
 			}
 		}
 
-		for (final Entry<String, Integer> entry : this.permissionMapBukkit.entrySet()) {
+		for (final Entry<String, Integer> entry : orEmpty(this.permissionMapBukkit).entrySet()) {
 			if ((entry.getValue() & ClaimPermission.MANAGE.perm) != 0) {
 				managers.add("[" + entry.getKey() + "]");
 			}
@@ -792,7 +824,7 @@ public class Claim {
 			}
 		}
 
-		for (final Entry<String, Integer> entry : this.permissionMapFakePlayer.entrySet()) {
+		for (final Entry<String, Integer> entry : orEmpty(this.permissionMapFakePlayer).entrySet()) {
 			if ((entry.getValue() & ClaimPermission.MANAGE.perm) != 0) {
 				managers.add("#" + entry.getKey());
 			}
@@ -810,19 +842,19 @@ public class Claim {
 	}
 
 	public boolean hasExplicitEntryTrustEntry() {
-		for (final Integer value : this.permissionMapPlayers.values()) {
+		for (final Integer value : orEmpty(this.permissionMapPlayers).values()) {
 			if ((value & ClaimPermission.ENTRY.perm) != 0) {
 				return true;
 			}
 		}
 
-		for (final Integer value : this.permissionMapBukkit.values()) {
+		for (final Integer value : orEmpty(this.permissionMapBukkit).values()) {
 			if ((value & ClaimPermission.ENTRY.perm) != 0) {
 				return true;
 			}
 		}
 
-		for (final Integer value : this.permissionMapFakePlayer.values()) {
+		for (final Integer value : orEmpty(this.permissionMapFakePlayer).values()) {
 			if ((value & ClaimPermission.ENTRY.perm) != 0) {
 				return true;
 			}
@@ -897,6 +929,29 @@ public class Claim {
 		return this.world;
 	}
 
+	/** @return true if the two world IDs are the same. IDs are interned, so this usually doesn't need equals() */
+	static boolean sameWorld(UUID world, UUID otherWorld) {
+		return (world == otherWorld) || ((world != null) && world.equals(otherWorld));
+	}
+
+	/** @return the UUID instance used by the loaded world with this ID, so that sameWorld() can compare by identity */
+	static UUID internWorld(UUID world) {
+		if (world == null) {
+			return null;
+		}
+
+		final UUID interned = internedWorlds.get(world);
+		if (interned != null) {
+			return interned;
+		}
+
+		// no server when claims are built outside of the plugin (tests)
+		final World bukkitWorld = Bukkit.getServer() != null ? Bukkit.getWorld(world) : null;
+		final UUID uid = bukkitWorld != null ? bukkitWorld.getUID() : world;
+		final UUID previous = internedWorlds.putIfAbsent(uid, uid);
+		return previous != null ? previous : uid;
+	}
+
 	// The player need that explicit permission
 	public boolean hasExplicitPermission(Player player, ClaimPermission level) {
 		if ((this.getPermission(player.getUniqueId()) & level.perm) != 0) {
@@ -904,46 +959,21 @@ public class Claim {
 		}
 
 		// check if the player has the default permissionBukkit permission
-		switch (level) {
-		case ACCESS:
-			if (player.isPermissionSet("gpp.c" + this.id + ".a") && player.hasPermission("gpp.c" + this.id + ".a")) {
-				return true;
-			}
-			break;
-		case CONTAINER:
-			if (player.isPermissionSet("gpp.c" + this.id + ".c") && player.hasPermission("gpp.c" + this.id + ".c")) {
-				return true;
-			}
-			break;
-		case BUILD:
-			if (player.isPermissionSet("gpp.c" + this.id + ".b") && player.hasPermission("gpp.c" + this.id + ".b")) {
-				return true;
-			}
-			break;
-		case MANAGE:
-			if (player.isPermissionSet("gpp.c" + this.id + ".m") && player.hasPermission("gpp.c" + this.id + ".m")) {
-				return true;
-			}
-			break;
-		case ENTRY:
-			if (player.isPermissionSet("gpp.c" + this.id + ".e") && player.hasPermission("gpp.c" + this.id + ".e")) {
-				return true;
-			}
-			break;
+		final String node = this.getPermissionNode(level);
+		if (player.isPermissionSet(node) && player.hasPermission(node)) {
+			return true;
 		}
 
 		// check if the player has an explicit permissionBukkit permission
-		for (final Entry<String, Integer> e : this.permissionMapBukkit.entrySet()) {
+		for (final Entry<String, Integer> e : orEmpty(this.permissionMapBukkit).entrySet()) {
 			if (((e.getValue() & level.perm) != 0) && player.isPermissionSet(e.getKey()) && player.hasPermission(e.getKey())) {
 				return true;
 			}
 		}
 
 		// check if player is a trusted fake player
-		for (final Entry<String, Integer> e : this.permissionMapFakePlayer.entrySet()) {
-			if (((e.getValue() & level.perm) != 0) && player.getName().startsWith(e.getKey())) {
-				return true;
-			}
+		if ((this.getFakePlayerTrie().match(player.getName()) & level.perm) != 0) {
+			return true;
 		}
 
 		return false;
@@ -973,7 +1003,7 @@ public class Claim {
 	public boolean isInDataStore() {
 		if (this.parent!=null) {
 			if (GriefPreventionPlus.getInstance().getDataStore().getClaim(this.parent.getID()) != null) {
-				return this.parent.children.contains(this);
+				return this.parent.getChildren().contains(this);
 			} else {
 				return false;
 			}
@@ -984,9 +1014,8 @@ public class Claim {
 	// distance check for claims, distance in this case is a band around the
 	// outside of the claim rather then euclidean distance
 	public boolean isNear(Location location, int howNear) {
-		final Claim claim = new Claim(this.world, this.lesserX - howNear, this.lesserZ - howNear, this.greaterX + howNear, this.greaterZ + howNear, null, null, null, null, null);
-
-		return claim.contains(location, false, true);
+		final int x = location.getBlockX(), z = location.getBlockZ();
+		return (x >= (this.lesserX - howNear)) && (x <= (this.greaterX + howNear)) && (z >= (this.lesserZ - howNear)) && (z <= (this.greaterZ + howNear)) && sameWorld(location.getWorld().getUID(), this.world) && (location.getBlockY() >= GriefPreventionPlus.getInstance().config.claims_maxDepth);
 	}
 
 	public String locationToString() {
@@ -1054,36 +1083,80 @@ public class Claim {
 	}
 
 	public void setLocation(UUID world, int lx, int lz, int gx, int gz) {
-		this.world = world;
+		// the grid depends on the top level claim's corners, and on the children's corners
+		final Claim top = this.parent != null ? this.parent : this;
+		top.subdivisionsVersion++;
+		this.cornersVersion++;
+		this.world = internWorld(world);
 		this.lesserX = lx;
 		this.lesserZ = lz;
 		this.greaterX = gx;
 		this.greaterZ = gz;
+		this.cornersVersion++;
+		top.subdivisionsVersion++;
+	}
+
+	/** @return whether a read of the corners that started at the specified cornersVersion may have seen a setLocation() half done */
+	boolean cornersChanged(int version) {
+		return ((version & 1) != 0) || (version != this.cornersVersion);
+	}
+
+	/** @return whether the block column is inside this claim's corners. safe on any thread */
+	boolean containsColumn(int x, int z) {
+		int version;
+		boolean inside;
+		do {
+			version = this.cornersVersion;
+			inside = (x >= this.lesserX) && (x <= this.greaterX) && (z >= this.lesserZ) && (z <= this.greaterZ);
+		} while (this.cornersChanged(version));
+		return inside;
 	}
 
 	// grants a permission for a bukkit permission or fakeplayer
 	public void setPermission(String target, ClaimPermission permissionLevel) {
-		final Integer targetPermission = this.getPermission(target);
-		if (target.startsWith("#")) {
-			this.permissionMapFakePlayer.put(target.substring(1), targetPermission | permissionLevel.perm);
-			GriefPreventionPlus.getInstance().getDataStore().dbSetPerm(this.id, target, permissionLevel.perm);
-		} else if (target.startsWith("[") && target.endsWith("]")) {
-			this.permissionMapBukkit.put(target.substring(1, target.length() - 1), targetPermission | permissionLevel.perm);
-			GriefPreventionPlus.getInstance().getDataStore().dbSetPerm(this.id, target.substring(1, target.length() - 1), permissionLevel.perm);
+		final String key = permissionStorageKey(target);
+		if (key != null) {
+			this.setMemoryPermission(key, permissionLevel);
+			GriefPreventionPlus.getInstance().getDataStore().dbSetPerm(this.id, key, permissionLevel.perm);
 		}
 	}
 
 	// grants a permission for a player or the public
 	public void setPermission(UUID playerID, ClaimPermission permissionLevel) {
-		final Integer currentPermission = this.getPermission(playerID);
-
-		this.permissionMapPlayers.put(playerID, currentPermission | permissionLevel.perm);
+		this.setMemoryPermission(playerID, permissionLevel);
 
 		GriefPreventionPlus.getInstance().getDataStore().dbSetPerm(this.id, playerID, permissionLevel.perm);
 	}
 
+	/** @return the name a "#fakeplayer" or "[bukkit.permission]" target is stored with: #fakeplayer or bukkit.permission. null if the target isn't valid */
+	static String permissionStorageKey(String target) {
+		if (target.startsWith("#")) {
+			return target;
+		}
+		if (target.startsWith("[") && target.endsWith("]")) {
+			return target.substring(1, target.length() - 1);
+		}
+		return null;
+	}
+
+	/** (this won't affect the database) grants a permission for a stored fakeplayer or bukkit permission name */
+	void setMemoryPermission(String key, ClaimPermission permissionLevel) {
+		if (key.startsWith("#")) {
+			this.permissionMapFakePlayer = withPermission(this.permissionMapFakePlayer, key.substring(1), permissionLevel.perm);
+		} else {
+			this.permissionMapBukkit = withPermission(this.permissionMapBukkit, key, permissionLevel.perm);
+		}
+		this.permissionEpoch++;
+	}
+
+	/** (this won't affect the database) grants a permission for a player or the public */
+	void setMemoryPermission(UUID playerID, ClaimPermission permissionLevel) {
+		this.permissionMapPlayers = withPermission(this.permissionMapPlayers, playerID, permissionLevel.perm);
+		this.permissionEpoch++;
+	}
+
 	private boolean placeableForFarming(Material material) {
-		return this.placeableFarmingBlocksList.contains(material);
+		return placeableFarmingBlocks.contains(material);
 	}
 
 	/**
@@ -1091,9 +1164,10 @@ public class Claim {
 	 * course)
 	 */
 	void clearMemoryPermissions() {
-		this.permissionMapPlayers.clear();
-		this.permissionMapBukkit.clear();
-		this.permissionMapFakePlayer.clear();
+		this.permissionMapPlayers = null;
+		this.permissionMapBukkit = null;
+		this.permissionMapFakePlayer = null;
+		this.permissionEpoch++;
 	}
 
 	long getPlayerInvestmentScore() {
@@ -1140,26 +1214,15 @@ public class Claim {
 	// implements a strict ordering of claims, used to keep the claims
 	// collection sorted for faster searching
 	boolean greaterThan(Claim otherClaim) {
-		final Location thisCorner = this.getLesserBoundaryCorner();
-		final Location otherCorner = otherClaim.getLesserBoundaryCorner();
-
-		if (thisCorner.getBlockX() > otherCorner.getBlockX()) {
-			return true;
-		}
-
-		if (thisCorner.getBlockX() < otherCorner.getBlockX()) {
-			return false;
+		if (this.lesserX != otherClaim.lesserX) {
+			return this.lesserX > otherClaim.lesserX;
 		}
 
-		if (thisCorner.getBlockZ() > otherCorner.getBlockZ()) {
-			return true;
-		}
-
-		if (thisCorner.getBlockZ() < otherCorner.getBlockZ()) {
-			return false;
+		if (this.lesserZ != otherClaim.lesserZ) {
+			return this.lesserZ > otherClaim.lesserZ;
 		}
 
-		return thisCorner.getWorld().getName().compareTo(otherCorner.getWorld().getName()) < 0;
+		return this.getWorld().getName().compareTo(otherClaim.getWorld().getName()) < 0;
 	}
 
 	// determines whether or not a claim has surface lava
@@ -1200,67 +1263,43 @@ public class Claim {
 	// whether or not two claims overlap
 	// used internally to prevent overlaps when creating claims
 	boolean overlaps(Claim otherClaim) {
-		// NOTE: if trying to understand this makes your head hurt, don't feel
-		// bad - it hurts mine too.
-		// try drawing pictures to visualize test cases.
-
-		if (!this.getWorldUID().equals(otherClaim.getWorldUID())) {
-			return false;
-		}
-
-		// first, check the corners of this claim aren't inside any existing
-		// claims
-		if (otherClaim.contains(this.getLesserBoundaryCorner(), true, false)) {
-			return true;
-		}
-		if (otherClaim.contains(this.getGreaterBoundaryCorner(), true, false)) {
-			return true;
-		}
-		if (otherClaim.contains(new Location(this.getWorld(), this.lesserX, 0, this.greaterZ), true, false)) {
-			return true;
-		}
-		if (otherClaim.contains(new Location(this.getWorld(), this.greaterX, 0, this.lesserZ), true, false)) {
-			return true;
-		}
-
-		// verify that no claim's lesser boundary point is inside this new
-		// claim, to cover the "existing claim is entirely inside new claim"
-		// case
-		if (this.contains(otherClaim.getLesserBoundaryCorner(), true, false)) {
-			return true;
-		}
-
-		// verify this claim doesn't band across an existing claim, either
-		// horizontally or vertically
-		if ((this.lesserZ <= otherClaim.greaterZ) && (this.lesserZ >= otherClaim.lesserZ) && (this.lesserX < otherClaim.lesserX) && (this.greaterX > otherClaim.greaterX)) {
-			return true;
-		}
-
-		if ((this.greaterZ <= otherClaim.greaterZ) && (this.greaterZ >= otherClaim.lesserZ) && (this.lesserX < otherClaim.lesserX) && (this.greaterX > otherClaim.greaterX)) {
-			return true;
-		}
-
-		if ((this.lesserX <= otherClaim.greaterX) && (this.lesserX >= otherClaim.lesserX) && (this.lesserZ < otherClaim.lesserZ) && (this.greaterZ > otherClaim.greaterZ)) {
-			return true;
-		}
+		// two rectangles overlap when they overlap on both axes
+		return (this.lesserX <= otherClaim.greaterX) && (this.greaterX >= otherClaim.lesserX) && (this.lesserZ <= otherClaim.greaterZ) && (this.greaterZ >= otherClaim.lesserZ) && sameWorld(this.world, otherClaim.world);
+	}
 
-		if ((this.greaterX <= otherClaim.greaterX) && (this.greaterX >= otherClaim.lesserX) && (this.lesserZ < otherClaim.lesserZ) && (this.greaterZ > otherClaim.greaterZ)) {
-			return true;
-		}
+	void setChildren(List<Claim> children) {
+		this.subdivisionsVersion++;
+		this.children = Collections.unmodifiableList(new ArrayList<Claim>(children));
+		this.subdivisionsVersion++;
+	}
 
-		return false;
+	void setModifiedDate(Date modifiedDate) {
+		this.modifiedDate = modifiedDate.getTime();
 	}
 
-	void setChildren(ArrayList<Claim> children) {
-		this.children = children;
+	/** sets the id. the permission node strings are rebuilt with the new id */
+	void setID(Integer id) {
+		this.id = id;
+		this.permissionNodes = null;
 	}
 
-	void setModifiedDate(Date modifiedDate) {
-		this.modifiedDate = modifiedDate;
+	/** @return the gpp.c<id>.<node> bukkit permission for the specified level on this claim */
+	public String getPermissionNode(ClaimPermission level) {
+		String[] nodes = this.permissionNodes;
+		if (nodes == null) {
+			final ClaimPermission[] levels = ClaimPermission.values();
+			nodes = new String[levels.length];
+			for (final ClaimPermission l : levels) {
+				nodes[l.ordinal()] = "gpp.c" + this.id + "." + l.node;
+			}
+			this.permissionNodes = nodes;
+		}
+		return nodes[level.ordinal()];
 	}
 
 	void setOwnerID(UUID ownerID) {
 		this.ownerID = ownerID;
+		this.permissionEpoch++;
 	}
 
 	void setParent(Claim parent) {
@@ -1273,10 +1312,11 @@ public class Claim {
 	 */
 	void unsetPermission(String target) {
 		if (target.startsWith("#")) {
-			this.permissionMapFakePlayer.remove(target.substring(1));
+			this.permissionMapFakePlayer = withoutPermission(this.permissionMapFakePlayer, target.substring(1));
 		} else {
-			this.permissionMapBukkit.remove(target);
+			this.permissionMapBukkit = withoutPermission(this.permissionMapBukkit, target);
 		}
+		this.permissionEpoch++;
 	}
 
 	/**
@@ -1284,7 +1324,8 @@ public class Claim {
 	 * public
 	 */
 	void unsetPermission(UUID playerID) {
-		this.permissionMapPlayers.remove(playerID);
+		this.permissionMapPlayers = withoutPermission(this.permissionMapPlayers, playerID);
+		this.permissionEpoch++;
 	}
 
 	
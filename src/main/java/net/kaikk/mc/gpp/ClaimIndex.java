@@ -0,0 +1,305 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/** spatial index for top level claims
+ *  every world has a multi-level grid: level 0 has 256x256 cells, and every
+ *  level has cells 8 times wider than the previous one. a claim is stored on
+ *  the finest level where it touches at most 2x2 cells, so big admin claims
+ *  take a handful of entries on a coarse level instead of thousands of fine cells.
+ *  cells are keyed by a 64 bit key (cell x in the high half, cell z in the low
+ *  half), so different cells never share the same key.
+ *  claims on level 0 are also tracked per chunk, so lookups in unclaimed
+ *  chunks don't compare any corner.
+ *  a cell or chunk entry is the claim itself when it holds one claim (the
+ *  common case), or a Claim[]: no wrapper object is allocated per entry.
+ *  entries are the loaded Claim objects, never copies made on lookup: callers
+ *  compare claims by reference (PlayerData.lastClaim drives the enter and exit
+ *  events), so a lookup must return the same instance every time.
+ *  changes must come from the main thread only. lookups are lock free and can
+ *  run on any thread: entries are immutable and replaced on every change, and
+ *  corners are read through the claim's cornersVersion, so a claim resized while
+ *  a lookup runs is seen with either its old or its new corners */
+class ClaimIndex {
+	static final int CELL_SHIFT = 8;
+	static final int LEVEL_SHIFT = 3;
+	static final int LEVELS = 8;
+
+	private final Map<UUID, WorldIndex> worlds = new ConcurrentHashMap<UUID, WorldIndex>();
+
+	/** registers a top level claim in every cell it touches on its level */
+	void add(Claim claim) {
+		WorldIndex worldIndex = this.worlds.get(claim.getWorldUID());
+		if (worldIndex == null) {
+			worldIndex = new WorldIndex();
+			this.worlds.put(claim.getWorldUID(), worldIndex);
+		}
+
+		final int level = levelFor(claim);
+		final int shift = shiftFor(level);
+		final int lx = claim.lesserX >> shift;
+		final int lz = claim.lesserZ >> shift;
+		final int gx = claim.greaterX >> shift;
+		final int gz = claim.greaterZ >> shift;
+
+		for (int i = lx; i <= gx; i++) {
+			for (int j = lz; j <= gz; j++) {
+				addTo(worldIndex.levels[level], cellKey(i, j), claim);
+			}
+		}
+
+		if (level == 0) {
+			for (int i = claim.lesserX >> 4; i <= (claim.greaterX >> 4); i++) {
+				for (int j = claim.lesserZ >> 4; j <= (claim.greaterZ >> 4); j++) {
+					addTo(worldIndex.chunks, cellKey(i, j), claim);
+				}
+			}
+		}
+	}
+
+	/** removes a top level claim from the index. the claim's corners must
+	 *  be the same it had when it was added */
+	void remove(Claim claim) {
+		final WorldIndex worldIndex = this.worlds.get(claim.getWorldUID());
+		if (worldIndex == null) {
+			return;
+		}
+
+		final int level = levelFor(claim);
+		final int shift = shiftFor(level);
+		final int lx = claim.lesserX >> shift;
+		final int lz = claim.lesserZ >> shift;
+		final int gx = claim.greaterX >> shift;
+		final int gz = claim.greaterZ >> shift;
+
+		for (int i = lx; i <= gx; i++) {
+			for (int j = lz; j <= gz; j++) {
+				removeFrom(worldIndex.levels[level], cellKey(i, j), claim);
+			}
+		}
+
+		if (level == 0) {
+			for (int i = claim.lesserX >> 4; i <= (claim.greaterX >> 4); i++) {
+				for (int j = claim.lesserZ >> 4; j <= (claim.greaterZ >> 4); j++) {
+					removeFrom(worldIndex.chunks, cellKey(i, j), claim);
+				}
+			}
+		}
+	}
+
+	/** @return the worlds with at least one claim added */
+	Set<UUID> worlds() {
+		return this.worlds.keySet();
+	}
+
+	/** @return the top level claim at the specified block column, or null */
+	Claim get(UUID world, int x, int z) {
+		final WorldIndex worldIndex = this.worlds.get(world);
+		if (worldIndex == null) {
+			return null;
+		}
+
+		// level 0 claims: answered by the chunk map
+		final Object chunk = worldIndex.chunks.get(cellKey(x >> 4, z >> 4));
+		if (chunk != null) {
+			final Claim claim = find(chunk, x, z);
+			if (claim != null) {
+				return claim;
+			}
+		}
+
+		for (int level = 1; level < LEVELS; level++) {
+			final LongObjectMap<Object> cells = worldIndex.levels[level];
+			if (cells.isEmpty()) {
+				continue;
+			}
+
+			final int shift = shiftFor(level);
+			final Object cell = cells.get(cellKey(x >> shift, z >> shift));
+			if (cell != null) {
+				final Claim claim = find(cell, x, z);
+				if (claim != null) {
+					return claim;
+				}
+			}
+		}
+		return null;
+	}
+
+	/** calls the consumer once for every top level claim intersecting the specified area (inclusive)
+	 *  a claim is in more cells of its level: it's reported only by the cell containing
+	 *  the lesser corner of its intersection with the area, so no set is needed */
+	void forEachIntersecting(UUID world, int minX, int minZ, int maxX, int maxZ, Consumer<Claim> consumer) {
+		final WorldIndex worldIndex = this.worlds.get(world);
+		if (worldIndex == null) {
+			return;
+		}
+
+		for (int level = 0; level < LEVELS; level++) {
+			final LongObjectMap<Object> cells = worldIndex.levels[level];
+			if (cells.isEmpty()) {
+				continue;
+			}
+
+			final int shift = shiftFor(level);
+			final int gx = maxX >> shift, gz = maxZ >> shift;
+			for (int i = minX >> shift; i <= gx; i++) {
+				for (int j = minZ >> shift; j <= gz; j++) {
+					final Object cell = cells.get(cellKey(i, j));
+					if (cell == null) {
+						continue;
+					}
+
+					if (cell instanceof Claim) {
+						visit((Claim) cell, i, j, shift, minX, minZ, maxX, maxZ, consumer);
+					} else {
+						for (final Claim claim : (Claim[]) cell) {
+							visit(claim, i, j, shift, minX, minZ, maxX, maxZ, consumer);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static void visit(Claim claim, int cellX, int cellZ, int shift, int minX, int minZ, int maxX, int maxZ, Consumer<Claim> consumer) {
+		int version;
+		boolean report;
+		do {
+			version = claim.cornersVersion;
+			report = (claim.lesserX <= maxX) && (claim.greaterX >= minX) && (claim.lesserZ <= maxZ) && (claim.greaterZ >= minZ) && ((Math.max(claim.lesserX, minX) >> shift) == cellX) && ((Math.max(claim.lesserZ, minZ) >> shift) == cellZ);
+		} while (claim.cornersChanged(version));
+
+		if (report) {
+			consumer.accept(claim);
+		}
+	}
+
+	/** @return the claim of the entry containing the specified block column, or null */
+	private static Claim find(Object entry, int x, int z) {
+		if (entry instanceof Claim) {
+			final Claim claim = (Claim) entry;
+			return claim.containsColumn(x, z) ? claim : null;
+		}
+
+		final Claim[] claims = (Claim[]) entry;
+		for (int i = 0; i < claims.length; i++) {
+			final Claim claim = claims[i];
+			if (claim.containsColumn(x, z)) {
+				return claim;
+			}
+		}
+		return null;
+	}
+
+	private static void addTo(LongObjectMap<Object> map, long key, Claim claim) {
+		final Object entry = map.get(key);
+		if (entry == null) {
+			map.put(key, claim);
+			return;
+		}
+
+		if (entry instanceof Claim) {
+			if (entry != claim) {
+				map.put(key, new Claim[] { (Claim) entry, claim });
+			}
+			return;
+		}
+
+		final Claim[] claims = (Claim[]) entry;
+		for (int i = 0; i < claims.length; i++) {
+			if (claims[i] == claim) {
+				return;
+			}
+		}
+
+		final Claim[] newClaims = new Claim[claims.length + 1];
+		System.arraycopy(claims, 0, newClaims, 0, claims.length);
+		newClaims[claims.length] = claim;
+		map.put(key, newClaims);
+	}
+
+	private static void removeFrom(LongObjectMap<Object> map, long key, Claim claim) {
+		final Object entry = map.get(key);
+		if (entry == null) {
+			return;
+		}
+
+		if (entry instanceof Claim) {
+			if (entry == claim) {
+				map.remove(key);
+			}
+			return;
+		}
+
+		final Claim[] claims = (Claim[]) entry;
+		for (int i = 0; i < claims.length; i++) {
+			if (claims[i] == claim) {
+				if (claims.length == 2) {
+					map.put(key, claims[1 - i]);
+				} else {
+					final Claim[] newClaims = new Claim[claims.length - 1];
+					System.arraycopy(claims, 0, newClaims, 0, i);
+					System.arraycopy(claims, i + 1, newClaims, i, claims.length - i - 1);
+					map.put(key, newClaims);
+				}
+				return;
+			}
+		}
+	}
+
+	static int levelFor(Claim claim) {
+		for (int level = 0; level < LEVELS - 1; level++) {
+			final int shift = shiftFor(level);
+			if ((((claim.greaterX >> shift) - (claim.lesserX >> shift)) <= 1) && (((claim.greaterZ >> shift) - (claim.lesserZ >> shift)) <= 1)) {
+				return level;
+			}
+		}
+		return LEVELS - 1;
+	}
+
+	static int shiftFor(int level) {
+		return CELL_SHIFT + (level * LEVEL_SHIFT);
+	}
+
+	static long cellKey(int cellX, int cellZ) {
+		return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+	}
+
+	private static class WorldIndex {
+		// one cell map per level
+		@SuppressWarnings("unchecked")
+		final LongObjectMap<Object>[] levels = new LongObjectMap[LEVELS];
+		// chunk key -> level 0 claims touching that chunk
+		final LongObjectMap<Object> chunks = new LongObjectMap<Object>();
+
+		WorldIndex() {
+			for (int level = 0; level < LEVELS; level++) {
+				this.levels[level] = new LongObjectMap<Object>();
+			}
+		}
+	}
+}
@@ -21,15 +21,21 @@ package net.kaikk.mc.gpp;
 
 //lower value = higher permissions
 public enum ClaimPermission {
-	MANAGE(1),		// 0 0 0 0 1
-	BUILD(2),		// 0 0 0 1 0
-	CONTAINER(4),	// 0 0 1 0 0
-	ACCESS(8),		// 0 1 0 0 0
-	ENTRY(16);		// 1 0 0 0 0
+	MANAGE(1, 'm'),		// 0 0 0 0 1
+	BUILD(2, 'b'),		// 0 0 0 1 0
+	CONTAINER(4, 'c'),	// 0 0 1 0 0
+	ACCESS(8, 'a'),		// 0 1 0 0 0
+	ENTRY(16, 'e');		// 1 0 0 0 0
+
+	// all the permissions above
+	public static final int ALL = 31;
 
 	public final int perm; //bintaryForm
+	// last char of the gpp.c<claimid>.<node> bukkit permission
+	final char node;
 
-	ClaimPermission(int perm) {
+	ClaimPermission(int perm, char node) {
 		this.perm = perm;
+		this.node = node;
 	}
 }
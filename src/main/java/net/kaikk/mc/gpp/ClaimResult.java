@@ -60,7 +60,9 @@ public class ClaimResult {
 	}
 	
 	public enum Result {
-		SUCCESS, OVERLAP, WGREGION, EVENT;
+		SUCCESS, OVERLAP, WGREGION, EVENT,
+		/** the claim couldn't be written to the storage */
+		STORAGE;
 	}
 
 	/** the reason received by the event */
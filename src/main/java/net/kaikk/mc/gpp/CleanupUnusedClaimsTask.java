@@ -19,8 +19,10 @@
 
 package net.kaikk.mc.gpp;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.UUID;
 
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
@@ -36,8 +38,12 @@ class CleanupUnusedClaimsTask extends BukkitRunnable {
 	long claimsRemMillisecs = GriefPreventionPlus.getInstance().config.claims_expirationDays * 86400000L;
 	long chestMillisecs = GriefPreventionPlus.getInstance().config.claims_chestClaimExpirationDays * 86400000L;
 	
-	List<Claim> claims;
+	List<UUID> owners;
 	int position, removed;
+	// expired claims of the current owner. one is deleted per run, so a big owner doesn't stall the server
+	final Deque<Claim> expiredClaims = new ArrayDeque<Claim>();
+	// owner of the queued claims, checked again before each deletion
+	UUID expiredOwner;
 
 	CleanupUnusedClaimsTask(GriefPreventionPlus instance) {
 		this.instance = instance;
@@ -49,54 +55,103 @@ class CleanupUnusedClaimsTask extends BukkitRunnable {
 
 		GriefPreventionPlus.addLogEntry("Initializating unused claims task");
 		long time = System.currentTimeMillis();
-		this.claims = new ArrayList<Claim>(this.instance.getDataStore().claims.values());
+		this.owners = this.instance.getDataStore().getClaimOwners();
 
-		GriefPreventionPlus.addLogEntry("Initialized "+this.claims.size()+" claims to be checked for expiration ("+(System.currentTimeMillis()-time)+" ms.)");
+		GriefPreventionPlus.addLogEntry("Initialized "+this.owners.size()+" claim owners to be checked for expiration ("+(System.currentTimeMillis()-time)+" ms.)");
 	}
 
 	@Override
 	public void run() {
-		if (this.claims.size() <= this.position) {
+		if (!this.expiredClaims.isEmpty()) {
+			this.expire(this.expiredClaims.poll());
+			return;
+		}
+
+		if (this.owners.size() <= this.position) {
 			GriefPreventionPlus.addLogEntry("Claims cleanup task completed. Removed " + this.removed + " claims.");
 			this.reschedule();
 			return;
 		}
 		
-		Claim claim = this.claims.get(this.position++);
-		if (!this.instance.getDataStore().claims.containsKey(claim.getID())) {
-			return; // this claim has been deleted already
+		// one owner per run, his claims come from the owner index. his expired claims are deleted one per run
+		final UUID ownerID = this.owners.get(this.position++);
+		if ((ownerID == null) || ownerID.equals(GriefPreventionPlus.UUID1)) {
+			return; // admin claims don't expire
 		}
 		
-		if (!claim.isAdminClaim()) {
-			final PlayerData playerData = this.instance.getDataStore().getPlayerData(claim.getOwnerID());
-			if (playerData.lastSeen == 0) {
-				playerData.lastSeen = Bukkit.getOfflinePlayer(claim.getOwnerID()).getLastPlayed();
-				if (playerData.lastSeen == 0) {
-					playerData.lastSeen = 1; // can't find any player data for this player... remove the claim.
-				}
+		final List<Claim> claims = this.instance.getDataStore().getClaimsOwnedBy(ownerID);
+		if (claims.isEmpty()) {
+			return; // these claims have been deleted already
+		}
+		
+		final long timeElapsed = this.timeElapsed(ownerID);
+		// area 0: whether any of his claims expires
+		if (!this.expired(timeElapsed, 0) || this.skipsExpiration(ownerID)) {
+			return;
+		}
+		
+		for (final Claim claim : claims) {
+			if (!claim.isAdminClaim() && this.expired(timeElapsed, claim.getArea())) {
+				this.expiredClaims.add(claim);
 			}
-			
-			final long timeElapsed = System.currentTimeMillis() - playerData.lastSeen;
-			if ((this.claimsRemMillisecs > 0 && timeElapsed > this.claimsRemMillisecs) || (this.chestMillisecs > 0 && timeElapsed > this.chestMillisecs && claim.getArea() <= this.areaOfDefaultClaim)) {
-				final OfflinePlayer player = this.instance.getServer().getOfflinePlayer(claim.getOwnerID());
-				if (!instance.hasPermission(player, "griefprevention.skipclaimexpiration")) {
-					// call event
-					ClaimDeleteEvent event = new ClaimDeleteEvent(claim, null, Reason.EXPIRED);
-					Bukkit.getPluginManager().callEvent(event);
-					if (event.isCancelled()) {
-						return;
-					}
-					claim.removeSurfaceFluids(null);
-					this.instance.getDataStore().deleteClaim(claim);
-					this.removed++;
-					if (claim.getWorld() != null && (this.instance.creativeRulesApply(claim.getWorld()) || this.instance.config.claims_survivalAutoNatureRestoration)) {
-						this.instance.restoreClaim(claim, 0);
-					}
-					
-					GriefPreventionPlus.addLogEntry("Claim ID [" + claim.id + "] at " + claim.locationToString() + " owned by " + claim.getOwnerName() + " has expired.");
-				}
+		}
+
+		if (!this.expiredClaims.isEmpty()) {
+			this.expiredOwner = ownerID;
+			this.expire(this.expiredClaims.poll());
+		}
+	}
+
+	private void expire(Claim claim) {
+		if (this.instance.getDataStore().getClaim(claim.id) != claim) {
+			return; // this claim has been deleted already
+		}
+
+		// the queue can take a while: the owner may have logged in, got the skip permission or given this claim away in the meantime
+		if (!this.expiredOwner.equals(claim.getOwnerID()) || !this.expired(this.timeElapsed(this.expiredOwner), claim.getArea()) || this.skipsExpiration(this.expiredOwner)) {
+			this.expiredClaims.clear();
+			return;
+		}
+
+		// call event
+		ClaimDeleteEvent event = new ClaimDeleteEvent(claim, null, Reason.EXPIRED);
+		Bukkit.getPluginManager().callEvent(event);
+		if (event.isCancelled()) {
+			return;
+		}
+		claim.removeSurfaceFluids(null);
+		this.instance.getDataStore().deleteClaim(claim);
+		this.removed++;
+		if (claim.getWorld() != null && (this.instance.creativeRulesApply(claim.getWorld()) || this.instance.config.claims_survivalAutoNatureRestoration)) {
+			this.instance.restoreClaim(claim, 0);
+		}
+
+		GriefPreventionPlus.addLogEntry("Claim ID [" + claim.id + "] at " + claim.locationToString() + " owned by " + claim.getOwnerName() + " has expired.");
+	}
+
+	/** milliseconds since the owner was last seen */
+	private long timeElapsed(UUID ownerID) {
+		final PlayerData playerData = this.instance.getDataStore().getPlayerData(ownerID);
+		if (playerData.lastSeen == 0) {
+			playerData.lastSeen = Bukkit.getOfflinePlayer(ownerID).getLastPlayed();
+			if (playerData.lastSeen == 0) {
+				playerData.lastSeen = 1; // can't find any player data for this player... remove the claim.
 			}
 		}
+		return System.currentTimeMillis() - playerData.lastSeen;
+	}
+
+	/** whether a claim of this area expires after this time. chest sized claims have their own expiration */
+	private boolean expired(long timeElapsed, int area) {
+		if (this.claimsRemMillisecs > 0 && timeElapsed > this.claimsRemMillisecs) {
+			return true;
+		}
+		return this.chestMillisecs > 0 && timeElapsed > this.chestMillisecs && area <= this.areaOfDefaultClaim;
+	}
+
+	private boolean skipsExpiration(UUID ownerID) {
+		final OfflinePlayer player = this.instance.getServer().getOfflinePlayer(ownerID);
+		return instance.hasPermission(player, "griefprevention.skipclaimexpiration");
 	}
 
 	void reschedule() {
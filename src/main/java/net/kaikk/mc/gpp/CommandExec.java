@@ -20,7 +20,9 @@
 package net.kaikk.mc.gpp;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -291,6 +293,7 @@ public class CommandExec implements CommandExecutor {
 			final PlayerData playerData = this.gpp.getDataStore().getPlayerData(player.getUniqueId());
 
 			playerData.ignoreClaims = !playerData.ignoreClaims;
+			playerData.invalidatePermissionCache();
 
 			// toggle ignore claims mode on or off
 			if (!playerData.ignoreClaims) {
@@ -1144,7 +1147,7 @@ public class CommandExec implements CommandExecutor {
 
 			// if the player isn't in a claim or has permission to build, tell
 			// him to man up
-			if ((claim == null) || (claim.canBuild(player, Material.AIR) == null)) {
+			if ((claim == null) || claim.checkBuild(player, Material.AIR).isAllowed()) {
 				GriefPreventionPlus.sendMessage(player, TextMode.Err, Messages.NotTrappedHere);
 				return true;
 			}
@@ -1178,6 +1181,7 @@ public class CommandExec implements CommandExecutor {
 
 		else if (cmd.getName().equalsIgnoreCase("gpreload")) {
 			this.gpp.config = new Config();
+			PlayerData.invalidateAllPermissionCaches();
 			if (player != null) {
 				GriefPreventionPlus.sendMessage(player, TextMode.Success, "Configuration updated.  If you have updated your Grief Prevention JAR, you still need to /reload or reboot your server.");
 			} else {
@@ -1268,6 +1272,10 @@ public class CommandExec implements CommandExecutor {
 					sender.sendMessage("Your selected area overlaps an existing claim.");
 				} else {
 					switch(result.getResult()) {
+						case STORAGE:{
+							GriefPreventionPlus.sendMessage(player, TextMode.Err, Messages.CreateClaimFailStorage);
+							break;
+						}
 						case EVENT:{
 							// show the message set by the event
 							if (result.getReason()!=null) {
@@ -1310,8 +1318,43 @@ public class CommandExec implements CommandExecutor {
 		}
 		// convertdatabase
 		else if (cmd.getName().equalsIgnoreCase("gpp") && (sender.hasPermission("griefprevention.gpp"))) {
+			if (args.length > 0 && args[0].equalsIgnoreCase("stats")){
+				final long hits = PlayerData.permissionCacheHits.sum(), misses = PlayerData.permissionCacheMisses.sum();
+				sender.sendMessage("§7Permission cache: §a" + hits + "§7 hits, §c" + misses + "§7 misses (" + (hits + misses == 0 ? 0 : (hits * 100) / (hits + misses)) + "% hit rate)");
+				sender.sendMessage("§7Player data saves queued: §a" + this.gpp.getDataStore().playerDataSaveQueue.size());
+				return true;
+			}
+
+			if (args.length > 0 && args[0].equalsIgnoreCase("checkblocks")){
+				// recomputes the tracked claimed area of the loaded players, and reports any drift
+				final Collection<PlayerData> playersData;
+				if (args.length > 1) {
+					final OfflinePlayer otherPlayer = this.gpp.resolvePlayer(args[1]);
+					if (otherPlayer == null) {
+						GriefPreventionPlus.sendMessage(sender, TextMode.Err, Messages.PlayerNotFound2);
+						return true;
+					}
+					playersData = Collections.singletonList(this.gpp.getDataStore().getPlayerData(otherPlayer.getUniqueId()));
+				} else {
+					playersData = new ArrayList<PlayerData>(this.gpp.getDataStore().playersData.values());
+				}
+
+				int drifted = 0;
+				for (final PlayerData playerData : playersData) {
+					final int drift = playerData.recomputeClaimedArea();
+					if (drift != 0) {
+						drifted++;
+						sender.sendMessage("§c" + GriefPreventionPlus.lookupPlayerName(playerData.playerID) + "§7: claimed area was off by " + drift + " blocks, fixed");
+					}
+				}
+				sender.sendMessage("§7Checked " + playersData.size() + " players, " + drifted + " had a wrong claimed area");
+				return true;
+			}
+
 			if (args.length == 0 || !args[0].equalsIgnoreCase("convertdatabase")){
 				sender.sendMessage( "§a/" + commandLabel + " convertdatabase");
+				sender.sendMessage( "§a/" + commandLabel + " stats");
+				sender.sendMessage( "§a/" + commandLabel + " checkblocks [player]");
 				return true;
 			}
 
@@ -1496,14 +1539,10 @@ public class CommandExec implements CommandExecutor {
 					return;
 				}
 
-				for (final Claim c : playerData.getClaims()) {
-					c.setPermission(recipientName, permissionLevel);
-				}
+				this.dataStore.grantPermissionOnPlayerClaims(player.getUniqueId(), recipientName, permissionLevel);
 				GriefPreventionPlus.addLogEntry(player.getName() + " added " + recipientName + " permission (" + (permissionLevel.toString()) + ") to all his claims");
 			} else if (recipientName.equals("public")) { // public
-				for (final Claim c : playerData.getClaims()) {
-					c.setPermission(GriefPreventionPlus.UUID0, permissionLevel);
-				}
+				this.dataStore.grantPermissionOnPlayerClaims(player.getUniqueId(), GriefPreventionPlus.UUID0, permissionLevel);
 				GriefPreventionPlus.addLogEntry(player.getName() + " added public permission (" + (permissionLevel.toString()) + ") to all his claims");
 			} else { // player?
 				final OfflinePlayer otherPlayer = this.gpp.resolvePlayer(recipientName);
@@ -1512,9 +1551,7 @@ public class CommandExec implements CommandExecutor {
 					return;
 				}
 
-				for (final Claim c : playerData.getClaims()) {
-					c.setPermission(otherPlayer.getUniqueId(), permissionLevel);
-				}
+				this.dataStore.grantPermissionOnPlayerClaims(player.getUniqueId(), otherPlayer.getUniqueId(), permissionLevel);
 				GriefPreventionPlus.addLogEntry(player.getName() + " added " + otherPlayer.getName() + " permission (" + (permissionLevel.toString()) + ") to all his claims");
 			}
 		} else { // claim the player is standing in
@@ -1613,6 +1650,10 @@ public class CommandExec implements CommandExecutor {
 		final ClaimResult result = this.dataStore.newClaim(player.getWorld().getUID(), x1, z1, x2, z2, player.getUniqueId(), null, null, player);
 
 		switch(result.getResult()) {
+			case STORAGE:{
+				GriefPreventionPlus.sendMessage(player, TextMode.Err, Messages.CreateClaimFailStorage);
+				break;
+			}
 			case EVENT:{
 				// show the message set by the event
 				if (result.getReason()!=null) {
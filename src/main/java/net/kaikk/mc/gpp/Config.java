@@ -163,11 +163,28 @@ public class Config {
 	// entrytrust default mode
 	public boolean entryTrustAllowByDefault;
 
+	// per player claim permissions cache
+	public int permissionCache_size;
+	public int permissionCache_ttlSeconds;
+
+	// how long an allowed claim entry is remembered while the player walks inside the claim
+	public int entryCache_ttlSeconds;
+
+	// how often the cached group bonus blocks of online players are recomputed
+	public int groupBonus_refreshSeconds;
+
+	// how often the queued player data saves are written
+	public int playerDataSave_intervalMillis;
+
 	// move blocks located within the
 	// piston's land claim
 	String databaseUrl;
 	String databaseUserName;
 	String databasePassword;
+	// mysql connection pool
+	int databasePoolMaxSize;
+	int databasePoolBorrowTimeoutSeconds;
+	int databasePoolLeakDetectionSeconds;
 	boolean useLocalYMLInstead;
 
 	public List<String> disabledWorlds;
@@ -317,11 +334,21 @@ public class Config {
 		this.databaseUserName = config.getString("GriefPrevention.Database.UserName", "");
 		this.databasePassword = config.getString("GriefPrevention.Database.Password", "");
 		this.useLocalYMLInstead = config.getBoolean("GriefPrevention.Database.useLocalYMLInstead", true);
+		this.databasePoolMaxSize = config.getInt("GriefPrevention.Database.Pool.MaxSize", 4);
+		this.databasePoolBorrowTimeoutSeconds = config.getInt("GriefPrevention.Database.Pool.BorrowTimeoutSeconds", 10);
+		this.databasePoolLeakDetectionSeconds = config.getInt("GriefPrevention.Database.Pool.LeakDetectionSeconds", 60);
 
 
 		// entry trust
 		this.entryTrustAllowByDefault = config.getBoolean("GriefPreventionPlus.EntryTrustAllowByDefault", true);
 
+		// permissions cache (0 size disables it)
+		this.permissionCache_size = config.getInt("GriefPreventionPlus.PermissionCache.Size", 16);
+		this.permissionCache_ttlSeconds = config.getInt("GriefPreventionPlus.PermissionCache.TTLSeconds", 30);
+		this.entryCache_ttlSeconds = config.getInt("GriefPreventionPlus.EntryCache.TTLSeconds", 30);
+		this.groupBonus_refreshSeconds = config.getInt("GriefPreventionPlus.GroupBonus.RefreshSeconds", 60);
+		this.playerDataSave_intervalMillis = config.getInt("GriefPreventionPlus.PlayerDataSave.IntervalMillis", 1000);
+
 		this.portalTrapSystemEnabled = config.getBoolean("GriefPreventionPlus.PortalTrapSystem.enabled", true);
 		this.portalTrapSystemDelaySeconds = config.getInt("GriefPreventionPlus.PortalTrapSystem.delaySeconds", 30);
 
@@ -379,6 +406,9 @@ public class Config {
 		outConfig.set("GriefPrevention.Database.UserName", this.databaseUserName);
 		outConfig.set("GriefPrevention.Database.Password", this.databasePassword);
 		outConfig.set("GriefPrevention.Database.useLocalYMLInstead", this.useLocalYMLInstead);
+		outConfig.set("GriefPrevention.Database.Pool.MaxSize", this.databasePoolMaxSize);
+		outConfig.set("GriefPrevention.Database.Pool.BorrowTimeoutSeconds", this.databasePoolBorrowTimeoutSeconds);
+		outConfig.set("GriefPrevention.Database.Pool.LeakDetectionSeconds", this.databasePoolLeakDetectionSeconds);
 
 		outConfig.set("GriefPrevention.Mods.BlockIdsRequiringAccessTrust", this.mods_accessTrustIds);
 		outConfig.set("GriefPrevention.Mods.BlockIdsRequiringContainerTrust", this.mods_containerTrustIds);
@@ -390,6 +420,11 @@ public class Config {
 		outConfig.set("GriefPrevention.Mods.BlockIdsExplodable", explodableStrings);
 		
 		outConfig.set("GriefPreventionPlus.EntryTrustAllowByDefault", this.entryTrustAllowByDefault);
+		outConfig.set("GriefPreventionPlus.PermissionCache.Size", this.permissionCache_size);
+		outConfig.set("GriefPreventionPlus.PermissionCache.TTLSeconds", this.permissionCache_ttlSeconds);
+		outConfig.set("GriefPreventionPlus.EntryCache.TTLSeconds", this.entryCache_ttlSeconds);
+		outConfig.set("GriefPreventionPlus.GroupBonus.RefreshSeconds", this.groupBonus_refreshSeconds);
+		outConfig.set("GriefPreventionPlus.PlayerDataSave.IntervalMillis", this.playerDataSave_intervalMillis);
 		outConfig.set("GriefPreventionPlus.PortalTrapSystem.enabled", this.portalTrapSystemEnabled);
 		outConfig.set("GriefPreventionPlus.PortalTrapSystem.delaySeconds", this.portalTrapSystemDelaySeconds);
 
@@ -0,0 +1,242 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/** a small JDBC connection pool
+ *  borrow() returns a connection that goes back to the pool when it's closed,
+ *  so it can be used with try-with-resources. at most maxSize connections are
+ *  borrowed at the same time: borrow() waits up to the borrow timeout for one
+ *  to be returned. idle connections are validated before they're borrowed again.
+ *  connections held longer than the leak threshold are reported in the log,
+ *  with the stack trace of the code that borrowed them. a threshold of 0
+ *  disables the leak detection, and no stack trace is taken on borrow */
+class ConnectionPool {
+	// idle connections unused for less than this aren't validated
+	private static final long VALIDATION_INTERVAL = 5000L;
+
+	private final String url;
+	private final Properties properties;
+	private final long borrowTimeout;
+	private final long leakThreshold;
+
+	private final Semaphore permits;
+	private final Deque<IdleConnection> idle = new ArrayDeque<IdleConnection>();
+	private final Map<Connection, Lease> leases = new ConcurrentHashMap<Connection, Lease>();
+	private volatile boolean closed;
+
+	ConnectionPool(String url, Properties properties, int maxSize, long borrowTimeoutMillis, long leakThresholdMillis) {
+		this.url = url;
+		this.properties = properties;
+		this.borrowTimeout = borrowTimeoutMillis;
+		this.leakThreshold = leakThresholdMillis;
+		this.permits = new Semaphore(Math.max(1, maxSize), true);
+	}
+
+	/** @return a connection. close it to give it back to the pool */
+	Connection borrow() throws SQLException {
+		if (this.closed) {
+			throw new SQLException("Connection pool closed");
+		}
+
+		this.reportLeaks();
+
+		try {
+			if (!this.permits.tryAcquire(this.borrowTimeout, TimeUnit.MILLISECONDS)) {
+				throw new SQLException("Timed out after " + this.borrowTimeout + "ms waiting for a database connection (" + this.leases.size() + " in use)");
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a database connection", e);
+		}
+
+		try {
+			final Connection connection = this.takeValidConnection();
+			final Connection proxy = (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] { Connection.class }, new PooledConnection(connection));
+			this.leases.put(proxy, new Lease(this.leakThreshold > 0 ? new Throwable() : null));
+			return proxy;
+		} catch (final SQLException e) {
+			this.permits.release();
+			throw e;
+		}
+	}
+
+	/** closes all the idle connections. borrowed connections are closed when they're returned */
+	void close() {
+		this.closed = true;
+		synchronized (this.idle) {
+			for (final IdleConnection c : this.idle) {
+				closeQuietly(c.connection);
+			}
+			this.idle.clear();
+		}
+	}
+
+	private Connection takeValidConnection() throws SQLException {
+		while (true) {
+			final IdleConnection c;
+			synchronized (this.idle) {
+				c = this.idle.pollFirst();
+			}
+
+			if (c == null) {
+				return DriverManager.getConnection(this.url, this.properties);
+			}
+
+			if ((System.currentTimeMillis() - c.since) < VALIDATION_INTERVAL) {
+				return c.connection;
+			}
+
+			try {
+				if (c.connection.isValid(2)) {
+					return c.connection;
+				}
+			} catch (final SQLException e) {
+				// not valid, fall through
+			}
+			closeQuietly(c.connection);
+		}
+	}
+
+	private void giveBack(Connection proxy, Connection connection) {
+		if (this.leases.remove(proxy) == null) {
+			// already returned
+			return;
+		}
+
+		boolean reusable = !this.closed;
+		try {
+			if (reusable && !connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+			reusable = reusable && !connection.isClosed();
+		} catch (final SQLException e) {
+			reusable = false;
+		}
+
+		if (reusable) {
+			synchronized (this.idle) {
+				// most recently used first: the others can time out on the server
+				this.idle.addFirst(new IdleConnection(connection));
+			}
+		} else {
+			closeQuietly(connection);
+		}
+		this.permits.release();
+	}
+
+	private void reportLeaks() {
+		if (this.leakThreshold <= 0) {
+			return;
+		}
+
+		final long now = System.currentTimeMillis();
+		for (final Lease lease : this.leases.values()) {
+			if (!lease.reported && ((now - lease.since) > this.leakThreshold)) {
+				lease.reported = true;
+				GriefPreventionPlus.addLogEntry("A database connection was borrowed " + ((now - lease.since) / 1000) + " seconds ago by thread " + lease.thread + " and has not been returned yet. Borrowed at:");
+				for (final StackTraceElement element : lease.trace.getStackTrace()) {
+					GriefPreventionPlus.addLogEntry("    at " + element);
+				}
+			}
+		}
+	}
+
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (final SQLException e) {
+
+		}
+	}
+
+	private static class IdleConnection {
+		final Connection connection;
+		final long since = System.currentTimeMillis();
+
+		IdleConnection(Connection connection) {
+			this.connection = connection;
+		}
+	}
+
+	private static class Lease {
+		final long since = System.currentTimeMillis();
+		final String thread = Thread.currentThread().getName();
+		// where the connection was borrowed, null if the leak detection is disabled
+		final Throwable trace;
+		volatile boolean reported;
+
+		Lease(Throwable trace) {
+			this.trace = trace;
+		}
+	}
+
+	/** delegates everything to the real connection, except close() */
+	private class PooledConnection implements InvocationHandler {
+		private final Connection connection;
+		private volatile boolean returned;
+
+		PooledConnection(Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "close":
+				if (!this.returned) {
+					this.returned = true;
+					ConnectionPool.this.giveBack((Connection) proxy, this.connection);
+				}
+				return null;
+			case "isClosed":
+				return this.returned || this.connection.isClosed();
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				if (this.returned) {
+					throw new SQLException("Connection already returned to the pool");
+				}
+				try {
+					return method.invoke(this.connection, args);
+				} catch (final InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		}
+	}
+}
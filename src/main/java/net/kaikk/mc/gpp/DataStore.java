@@ -27,16 +27,20 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
@@ -50,14 +54,29 @@ import net.kaikk.mc.gpp.events.ClaimResizeEvent;
 //singleton class which manages all GriefPrevention data (except for config options)
 public abstract class DataStore {
 	// in-memory cache for player data
-	protected Map<UUID, PlayerData> playersData = new HashMap<UUID, PlayerData>();
+	// concurrent maps: async tasks and other plugins read them while the main thread writes
+	protected Map<UUID, PlayerData> playersData = new ConcurrentHashMap<UUID, PlayerData>();
 
 	// in-memory cache for group (permission-based) data
 	protected Map<String, Integer> permissionToBonusBlocksMap = new HashMap<String, Integer>();
+	// incremented when permissionToBonusBlocksMap changes, so cached group bonus blocks are recomputed
+	volatile int groupBonusEpoch;
 
 	// in-memory cache for claim data
-	public Map<Integer, Claim> claims = new HashMap<Integer, Claim>();
-	public Map<Integer, Map<Integer, Claim>> posClaims = new HashMap<Integer, Map<Integer, Claim>>();
+	public Map<Integer, Claim> claims = new ConcurrentHashMap<Integer, Claim>();
+	// spatial index of the top level claims, partitioned by world
+	final ClaimIndex claimIndex = new ClaimIndex();
+	/** @deprecated read only view of the claim index, kept for plugins that read this map.
+	 *  it will be removed: use getClaimAt() or forEachClaimIntersecting() */
+	@Deprecated
+	public final Map<Integer, Map<Integer, Claim>> posClaims = new PosClaimsView(this);
+	// owner -> top level claims. lists are immutable, replaced on every change
+	private final Map<UUID, List<Claim>> ownerClaims = new ConcurrentHashMap<UUID, List<Claim>>();
+	// owner -> mutable lists, only while the claims are loaded. see beginClaimsLoad()
+	private Map<UUID, List<Claim>> loadingOwnerClaims;
+
+	// player data saves, coalesced and written by a single thread
+	final PlayerDataSaveQueue playerDataSaveQueue = new PlayerDataSaveQueue(this, GriefPreventionPlus.getInstance().config.playerDataSave_intervalMillis);
 
 	// in-memory cache for messages
 	public String[] messages;
@@ -85,6 +104,7 @@ public abstract class DataStore {
 
 		currentValue += amount;
 		this.permissionToBonusBlocksMap.put(groupName, currentValue);
+		this.groupBonusEpoch++;
 
 		// write changes to storage to ensure they don't get lost
 		this.saveGroupBonusBlocks(groupName, currentValue);
@@ -121,16 +141,18 @@ public abstract class DataStore {
 		}
 
 		// transfer
+		this.ownerIndexRemove(claim);
 		claim.setOwnerID(newOwnerID);
+		this.ownerIndexAdd(claim);
 		this.dbUpdateOwner(claim);
 
 		// adjust blocks and other records
 		if (ownerData != null) {
-			ownerData.getClaims().remove(claim);
+			ownerData.removeOwnedClaim(claim);
 		}
 
 		if (newOwnerData != null) {
-			newOwnerData.getClaims().add(claim);
+			newOwnerData.addOwnedClaim(claim);
 		}
 	}
 	
@@ -197,23 +219,23 @@ public abstract class DataStore {
 		newClaim.setParent(parent);
 
 		// ensure this new claim won't overlap any existing claims
-		ArrayList<Claim> claimsToCheck;
+		Claim overlappedClaim = null;
 		if (newClaim.getParent() != null) {
-			claimsToCheck = newClaim.getParent().getChildren();
+			for (final Claim otherClaim : newClaim.getParent().getChildren()) {
+				if (otherClaim.overlaps(newClaim)) {
+					overlappedClaim = otherClaim;
+					break;
+				}
+			}
 		} else {
-			claimsToCheck = new ArrayList<Claim>(this.claims.values());
+			overlappedClaim = this.getOverlappingTopClaim(newClaim, null);
 		}
 
-		for (int i = 0; i < claimsToCheck.size(); i++) {
-			final Claim otherClaim = claimsToCheck.get(i);
-
-			// if we find an existing claim which will be overlapped
-			if (otherClaim.overlaps(newClaim)) {
-				// result = fail, return conflicting claim
-				result.setResult(Result.OVERLAP);
-				result.setClaim(otherClaim);
-				return result;
-			}
+		if (overlappedClaim != null) {
+			// result = fail, return conflicting claim
+			result.setResult(Result.OVERLAP);
+			result.setClaim(overlappedClaim);
+			return result;
 		}
 
 		// if worldguard is installed, also prevent claims from overlapping any
@@ -235,7 +257,10 @@ public abstract class DataStore {
 		}
 		
 		// otherwise add this new claim to the data store to make it effective
-		this.addClaim(newClaim, true);
+		if (!this.addClaim(newClaim, true)) {
+			result.setResult(Result.STORAGE);
+			return result;
+		}
 
 		// then return success along with reference to new claim
 		result.setResult(Result.SUCCESS);
@@ -247,7 +272,7 @@ public abstract class DataStore {
 	public void deleteClaim(Claim claim) {
 		if (claim.getParent() != null) { // subdivision
 			final Claim parentClaim = claim.getParent();
-			parentClaim.getChildren().remove(claim);
+			parentClaim.removeChild(claim);
 			this.deleteClaimFromSecondaryStorage(claim);
 			return;
 		}
@@ -255,6 +280,7 @@ public abstract class DataStore {
 		// remove from memory
 		this.posClaimsRemove(claim);
 		this.claims.remove(claim.id);
+		this.ownerIndexRemove(claim);
 
 		// remove from secondary storage
 		this.deleteClaimFromSecondaryStorage(claim);
@@ -263,12 +289,7 @@ public abstract class DataStore {
 		// owner
 		if (!claim.isAdminClaim()) {
 			final PlayerData ownerData = this.getPlayerData(claim.getOwnerID());
-			for (int i = 0; i < ownerData.getClaims().size(); i++) {
-				if (ownerData.getClaims().get(i).id == claim.id) {
-					ownerData.getClaims().remove(i);
-					break;
-				}
-			}
+			ownerData.removeOwnedClaim(claim);
 			this.savePlayerData(claim.getOwnerID(), ownerData);
 		}
 	}
@@ -276,8 +297,8 @@ public abstract class DataStore {
 	/** deletes all claims owned by a player */
 	public void deleteClaimsForPlayer(UUID claimsOwner, Player sender, boolean deleteCreativeClaims) {
 		List<Claim> claimsToRemove = new ArrayList<Claim>();
-		for (final Claim claim : this.claims.values()) {
-			if (claimsOwner.equals(claim.getOwnerID()) && (deleteCreativeClaims || !GriefPreventionPlus.getInstance().creativeRulesApply(claim.getWorld()))) {
+		for (final Claim claim : this.getClaimsOwnedBy(claimsOwner)) {
+			if (deleteCreativeClaims || !GriefPreventionPlus.getInstance().creativeRulesApply(claim.getWorld())) {
 				// fire event
 				final ClaimDeleteEvent event = new ClaimDeleteEvent(claim, sender, Reason.DELETEALL);
 				GriefPreventionPlus.getInstance().getServer().getPluginManager().callEvent(event);
@@ -329,8 +350,8 @@ public abstract class DataStore {
 	/** deletes all claims owned by a player on the specified world */
 	public void deleteClaimsForPlayer(UUID claimsOwner, Player sender, World world, boolean deleteCreativeClaims) {
 		List<Claim> claimsToRemove = new ArrayList<Claim>();
-		for (final Claim claim : this.claims.values()) {
-			if (world.getUID().equals(claim.getWorldUID()) && (claimsOwner.equals(claim.getOwnerID()) && (deleteCreativeClaims || !GriefPreventionPlus.getInstance().creativeRulesApply(claim.getWorld())))) {
+		for (final Claim claim : this.getClaimsOwnedBy(claimsOwner)) {
+			if (world.getUID().equals(claim.getWorldUID()) && (deleteCreativeClaims || !GriefPreventionPlus.getInstance().creativeRulesApply(claim.getWorld()))) {
 				// fire event
 				final ClaimDeleteEvent event = new ClaimDeleteEvent(claim, sender, Reason.DELETEALL);
 				GriefPreventionPlus.getInstance().getServer().getPluginManager().callEvent(event);
@@ -351,6 +372,33 @@ public abstract class DataStore {
 		}
 	}
 	
+	/** grants a permission for a "#fakeplayer" or "[bukkit.permission]" on all claims owned by the specified player */
+	public void grantPermissionOnPlayerClaims(UUID ownerId, String target, ClaimPermission permissionLevel) {
+		final String key = Claim.permissionStorageKey(target);
+		if (key == null) {
+			return;
+		}
+
+		final List<Claim> claims = this.getPlayerData(ownerId).getClaims();
+		final List<Integer> claimIds = new ArrayList<Integer>(claims.size());
+		for (final Claim c : claims) {
+			c.setMemoryPermission(key, permissionLevel);
+			claimIds.add(c.id);
+		}
+		this.dbSetPerm(claimIds, key, permissionLevel.perm);
+	}
+
+	/** grants a permission for a player (or the public) on all claims owned by the specified player */
+	public void grantPermissionOnPlayerClaims(UUID ownerId, UUID playerId, ClaimPermission permissionLevel) {
+		final List<Claim> claims = this.getPlayerData(ownerId).getClaims();
+		final List<Integer> claimIds = new ArrayList<Integer>(claims.size());
+		for (final Claim c : claims) {
+			c.setMemoryPermission(playerId, permissionLevel);
+			claimIds.add(c.id);
+		}
+		this.dbSetPerm(claimIds, playerId, permissionLevel.perm);
+	}
+
 	/** removes a permission node from all claims owned by the specified player */
 	public void dropPermissionOnPlayerClaims(UUID ownerId, String permBukkit) {
 		final PlayerData ownerData = this.getPlayerData(ownerId);
@@ -377,6 +425,67 @@ public abstract class DataStore {
 		return claims;
 	}
 
+	/** get the top level claims owned by the specified player
+	 *  the returned list is an immutable snapshot, it's safe to delete claims while iterating it */
+	public List<Claim> getClaimsOwnedBy(UUID ownerID) {
+		final List<Claim> claims = ownerID != null ? this.ownerClaims.get(ownerID) : null;
+		return claims != null ? claims : Collections.<Claim>emptyList();
+	}
+
+	/** get the owners of at least one top level claim */
+	public List<UUID> getClaimOwners() {
+		return new ArrayList<UUID>(this.ownerClaims.keySet());
+	}
+
+	/** claims added until endClaimsLoad() go to the owner index in bulk:
+	 *  every owner's list is built once, instead of being copied on every add */
+	void beginClaimsLoad() {
+		this.loadingOwnerClaims = new HashMap<UUID, List<Claim>>();
+	}
+
+	/** publishes the owner lists built since beginClaimsLoad() */
+	void endClaimsLoad() {
+		for (final Entry<UUID, List<Claim>> e : this.loadingOwnerClaims.entrySet()) {
+			this.ownerClaims.put(e.getKey(), Collections.unmodifiableList(e.getValue()));
+		}
+		this.loadingOwnerClaims = null;
+	}
+
+	// main thread only
+	void ownerIndexAdd(Claim claim) {
+		if (claim.getOwnerID() == null) {
+			return;
+		}
+
+		if (this.loadingOwnerClaims != null) {
+			// loaded claims are unique, no need to check the list
+			this.loadingOwnerClaims.computeIfAbsent(claim.getOwnerID(), k -> new ArrayList<Claim>()).add(claim);
+			return;
+		}
+
+		final List<Claim> claims = this.getClaimsOwnedBy(claim.getOwnerID());
+		if (!claims.contains(claim)) {
+			final List<Claim> newClaims = new ArrayList<Claim>(claims.size() + 1);
+			newClaims.addAll(claims);
+			newClaims.add(claim);
+			this.ownerClaims.put(claim.getOwnerID(), Collections.unmodifiableList(newClaims));
+		}
+	}
+
+	// main thread only
+	void ownerIndexRemove(Claim claim) {
+		final List<Claim> claims = this.getClaimsOwnedBy(claim.getOwnerID());
+		if (claims.contains(claim)) {
+			if (claims.size() == 1) {
+				this.ownerClaims.remove(claim.getOwnerID());
+			} else {
+				final List<Claim> newClaims = new ArrayList<Claim>(claims);
+				newClaims.remove(claim);
+				this.ownerClaims.put(claim.getOwnerID(), Collections.unmodifiableList(newClaims));
+			}
+		}
+	}
+
 	/** get a claim by ID */
 	public Claim getClaim(int id) {
 		return this.claims.get(id);
@@ -395,34 +504,61 @@ public abstract class DataStore {
 	/** get a claim at specified location
 	 *  specifying a cached claim will help performances */
 	public Claim getClaimAt(Location location, boolean ignoreHeight, Claim cachedClaim) {
-		final Claim claim = this.getClaimAt(location, cachedClaim);
-		if (ignoreHeight || ((claim != null) && claim.checkHeight(location))) {
-			return claim;
-		}
-
-		return null;
+		return this.getClaimAt(location.getWorld().getUID(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), ignoreHeight, cachedClaim);
 	}
 
 	/** gets the claim at a specific location
 	  cachedClaim can be NULL, but will help performance if you have a
 	  reasonable guess about which claim the location is in */
 	public Claim getClaimAt(Location location, Claim cachedClaim) {
+		return this.getClaimAt(location.getWorld().getUID(), location.getBlockX(), location.getBlockY(), location.getBlockZ(), true, cachedClaim);
+	}
+
+	/** get a claim at the specified block */
+	public Claim getClaimAt(Block block, boolean ignoreHeight) {
+		return this.getClaimAt(block, ignoreHeight, null);
+	}
+
+	/** get a claim at the specified block, ignoring the height
+	 *  specifying a cached claim will help performances */
+	public Claim getClaimAt(Block block, Claim cachedClaim) {
+		return this.getClaimAt(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ(), true, cachedClaim);
+	}
+
+	/** get a claim at the specified block
+	 *  specifying a cached claim will help performances */
+	public Claim getClaimAt(Block block, boolean ignoreHeight, Claim cachedClaim) {
+		return this.getClaimAt(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ(), ignoreHeight, cachedClaim);
+	}
+
+	/** get a claim at the specified coordinates
+	 *  specifying a cached claim will help performances */
+	public Claim getClaimAt(World world, int x, int y, int z, boolean ignoreHeight, Claim cachedClaim) {
+		return this.getClaimAt(world.getUID(), x, y, z, ignoreHeight, cachedClaim);
+	}
+
+	/** get a claim at the specified coordinates, it doesn't allocate anything
+	 *  specifying a cached claim will help performances */
+	public Claim getClaimAt(UUID world, int x, int y, int z, boolean ignoreHeight, Claim cachedClaim) {
+		if (!ignoreHeight && (y < GriefPreventionPlus.getInstance().config.claims_maxDepth)) {
+			return null;
+		}
+
 		// check cachedClaim guess first. if it's in the datastore and the
 		// location is inside it, we're done
-		if ((cachedClaim != null) && cachedClaim.isInDataStore() && cachedClaim.contains(location, true, false)) {
+		if ((cachedClaim != null) && cachedClaim.isInDataStore() && cachedClaim.contains(world, x, y, z, true, false)) {
 			return cachedClaim;
 		}
 
 		// find a top level claim
-		final Claim claim = this.posClaimsGet(location);
+		final Claim claim = this.claimIndex.get(world, x, z);
 		if (claim != null) {
 			// when we find a top level claim, if the location is in one of its
 			// subdivisions,
 			// return the SUBDIVISION, not the top level claim
-			for (final Claim subdivision : claim.getChildren()) {
-				if (subdivision.contains(location, true, false)) {
-					return subdivision;
-				}
+			final Claim subdivision = claim.getChildAt(x, z);
+			if (subdivision != null) {
+				return subdivision;
 			}
 		}
 
@@ -445,13 +581,25 @@ public abstract class DataStore {
 
 	/** gets all the claims 128 blocks range from a location */
 	public Map<Integer, Claim> getNearbyClaims(Location location) {
-		return this.posClaimsGet(location, 128);
+		final Map<Integer, Claim> claims = new HashMap<Integer, Claim>();
+		this.forEachNearbyClaim(location, claim -> claims.put(claim.getID(), claim));
+		return claims;
+	}
+
+	/** calls the consumer for all the claims 128 blocks range from a location */
+	public void forEachNearbyClaim(Location location, Consumer<Claim> consumer) {
+		this.forEachClaimIntersecting(location.getWorld().getUID(), location.getBlockX() - 128, location.getBlockZ() - 128, location.getBlockX() + 128, location.getBlockZ() + 128, consumer);
 	}
 
 	/** retrieves player data from memory or secondary storage, as necessary
 	if the player has never been on the server before, this will return a
 	fresh player data with default values */
 	public PlayerData getPlayerData(UUID playerID) {
+		if (playerID == null) {
+			// concurrent maps don't allow null keys
+			return new PlayerData(null);
+		}
+
 		// first, look in memory
 		PlayerData playerData = this.playersData.get(playerID);
 
@@ -461,7 +609,10 @@ public abstract class DataStore {
 			playerData = new PlayerData(playerID);
 			
 			// shove that new player data into the hash map cache
-			this.playersData.put(playerID, playerData);
+			final PlayerData previous = this.playersData.putIfAbsent(playerID, playerData);
+			if (previous != null) {
+				playerData = previous;
+			}
 		}
 
 		return playerData;
@@ -477,7 +628,7 @@ public abstract class DataStore {
 	public Claim overlapsClaims(Claim claim, Claim excludedClaim, Player creatingPlayer) {
 		if (claim.getParent() != null) {
 			// top claim contains this subclaim
-			if (!claim.getParent().contains(claim.getLesserBoundaryCorner(), true, false) || !claim.getParent().contains(claim.getGreaterBoundaryCorner(), true, false)) {
+			if (!claim.getParent().contains(claim.getWorldUID(), claim.lesserX, 0, claim.lesserZ, true, false) || !claim.getParent().contains(claim.getWorldUID(), claim.greaterX, 0, claim.greaterZ, true, false)) {
 				return claim.getParent();
 			}
 
@@ -495,20 +646,15 @@ public abstract class DataStore {
 			// if this claim has subclaims, check that every subclaim is within
 			// the top claim
 			for (final Claim otherClaim : claim.getChildren()) {
-				if (!claim.contains(otherClaim.getGreaterBoundaryCorner(), true, false) || !claim.contains(otherClaim.getLesserBoundaryCorner(), true, false)) {
+				if (!claim.contains(otherClaim.getWorldUID(), otherClaim.greaterX, 0, otherClaim.greaterZ, true, false) || !claim.contains(otherClaim.getWorldUID(), otherClaim.lesserX, 0, otherClaim.lesserZ, true, false)) {
 					return otherClaim;
 				}
 			}
 
 			// Check for other claims
-			for (final Claim otherClaim : this.claims.values()) {
-				if ((otherClaim == claim) || (otherClaim == excludedClaim)) {
-					continue; // exclude this claim
-				}
-
-				if (otherClaim.overlaps(claim)) {
-					return otherClaim;
-				}
+			final Claim overlappedClaim = this.getOverlappingTopClaim(claim, excludedClaim);
+			if (overlappedClaim != null) {
+				return overlappedClaim;
 			}
 
 			// if worldguard is installed, also prevent claims from overlapping
@@ -522,35 +668,35 @@ public abstract class DataStore {
 		return null;
 	}
 
-	/** This method will return a set with all claims on the specified range */
-	public Map<Integer, Claim> posClaimsGet(Location loc, int blocksRange) {
-		int lx = loc.getBlockX() - blocksRange;
-		int lz = loc.getBlockZ() - blocksRange;
-
-		int gx = loc.getBlockX() + blocksRange;
-		int gz = loc.getBlockZ() + blocksRange;
+	/** @return a top level claim overlapping the specified claim, or null
+	 *  only the index cells covered by the claim are checked */
+	Claim getOverlappingTopClaim(final Claim claim, final Claim excludedClaim) {
+		final Claim[] overlapped = new Claim[1];
+		this.claimIndex.forEachIntersecting(claim.getWorldUID(), claim.lesserX, claim.lesserZ, claim.greaterX, claim.greaterZ, otherClaim -> {
+			if ((overlapped[0] == null) && (otherClaim != claim) && (otherClaim != excludedClaim) && otherClaim.overlaps(claim)) {
+				overlapped[0] = otherClaim;
+			}
+		});
+		return overlapped[0];
+	}
 
-		final Claim validArea = new Claim(loc.getWorld().getUID(), lx, lz, gx, gz, null, null, null, null, null);
+	/** calls the consumer once for every top level claim intersecting the specified area (inclusive)
+	 *  nothing is allocated per claim, and the consumer must not add or remove claims */
+	public void forEachClaimIntersecting(World world, int minX, int minZ, int maxX, int maxZ, Consumer<Claim> consumer) {
+		this.forEachClaimIntersecting(world.getUID(), minX, minZ, maxX, maxZ, consumer);
+	}
 
-		lx = lx >> 8;
-		lz = lz >> 8;
-		gx = gx >> 8;
-		gz = gz >> 8;
+	/** calls the consumer once for every top level claim intersecting the specified area (inclusive)
+	 *  nothing is allocated per claim, and the consumer must not add or remove claims */
+	public void forEachClaimIntersecting(UUID world, int minX, int minZ, int maxX, int maxZ, Consumer<Claim> consumer) {
+		this.claimIndex.forEachIntersecting(world, Math.min(minX, maxX), Math.min(minZ, maxZ), Math.max(minX, maxX), Math.max(minZ, maxZ), consumer);
+	}
 
+	/** This method will return a set with all claims on the specified range
+	 *  forEachClaimIntersecting() does the same without building a map */
+	public Map<Integer, Claim> posClaimsGet(Location loc, int blocksRange) {
 		final Map<Integer, Claim> claims = new HashMap<Integer, Claim>();
-
-		for (int i = lx; i <= gx; i++) {
-			for (int j = lz; j <= gz; j++) {
-				final Map<Integer, Claim> claimMap = this.posClaims.get(coordsHashCode(i, j));
-				if (claimMap != null) {
-					for (final Claim claim : claimMap.values()) {
-						if (claim.overlaps(validArea)) {
-							claims.put(claim.getID(), claim);
-						}
-					}
-				}
-			}
-		}
+		this.forEachClaimIntersecting(loc.getWorld().getUID(), loc.getBlockX() - blocksRange, loc.getBlockZ() - blocksRange, loc.getBlockX() + blocksRange, loc.getBlockZ() + blocksRange, claim -> claims.put(claim.getID(), claim));
 		return claims;
 	}
 
@@ -575,13 +721,23 @@ public abstract class DataStore {
 
 			// let's update this claim
 
-			this.posClaimsRemove(claim);
+			// subdivisions aren't in the claim index, setLocation() takes care of the parent's subdivisions index
+			final boolean topLevel = claim.getParent() == null;
+			if (topLevel) {
+				this.posClaimsRemove(claim);
+			}
 			final String oldLoc = claim.locationToString();
+			final int oldArea = claim.getArea();
 
 			claim.setLocation(claim.getWorldUID(), newx1, newz1, newx2, newz2);
 			this.dbUpdateLocation(claim);
 
-			this.posClaimsAdd(claim);
+			if (topLevel) {
+				this.posClaimsAdd(claim);
+				if (!claim.isAdminClaim()) {
+					this.getPlayerData(claim.getOwnerID()).ownedClaimResized(oldArea, claim.getArea());
+				}
+			}
 
 			GriefPreventionPlus.addLogEntry(claim.getOwnerName() + " resized claim id " + claim.id + " from " + oldLoc + " to " + claim.locationToString());
 			return new ClaimResult(Result.SUCCESS, claim);
@@ -591,8 +747,11 @@ public abstract class DataStore {
 	}
 
 	/** saves changes to player data to secondary storage. MUST be called after
-	you're done making changes, otherwise a reload will lose them */
-	public abstract void savePlayerData(UUID playerID, PlayerData playerData);
+	you're done making changes, otherwise a reload will lose them.
+	the save is queued: saves of the same player are written once per flush */
+	public void savePlayerData(UUID playerID, PlayerData playerData) {
+		this.playerDataSaveQueue.enqueue(playerID, playerData);
+	}
 
 	/** saves changes to player data to secondary storage. MUST be called after
 	you're done making changes, otherwise a reload will lose them */
@@ -774,6 +933,8 @@ public abstract class DataStore {
 		this.addDefault(defaults, Messages.ShowNearbyClaims, "Found {0} land claims.", "0: Number of claims found.");
 		this.addDefault(defaults, Messages.NoChatUntilMove, "Sorry, but you have to move a little more before you can chat.  We get lots of spam bots here.  :)", null);
 		this.addDefault(defaults, Messages.SetClaimBlocksSuccess, "Updated accrued claim blocks.", null);
+		this.addDefault(defaults, Messages.CreateClaimFailStorage, "Your claim couldn't be saved.  Please try again later.", null);
+		this.addDefault(defaults, Messages.ClaimNotSaved, "Your claim at {0} couldn't be saved and has been removed.  Please claim it again later.", "0: claim location");
 
 		// load the config file
 		final FileConfiguration config = YamlConfiguration.loadConfiguration(new File(messagesFilePath));
@@ -812,46 +973,65 @@ public abstract class DataStore {
 		System.gc();
 	}
 	
-	// adds a claim to the datastore, making it an effective claim
-	void addClaim(Claim newClaim, boolean writeToStorage) {
+	/** adds a claim to the datastore, making it an effective claim
+	 *  @return false if the claim couldn't be written to the storage. the claim isn't added then */
+	boolean addClaim(Claim newClaim, boolean writeToStorage) {
+		// the storage gives the claim its id: nothing is touched if that fails
+		if (writeToStorage && !this.dbNewClaim(newClaim)) {
+			return false;
+		}
+
 		// subdivisions are easy
 		if (newClaim.getParent() != null) {
-			newClaim.getParent().getChildren().add(newClaim);
-			if (writeToStorage) {
-				this.dbNewClaim(newClaim);
-			}
-			return;
+			newClaim.getParent().addChild(newClaim);
+			return true;
 		}
 
-		if (writeToStorage) { // write the new claim on the db, so we get the id
-			// generated by the database
-			this.dbNewClaim(newClaim);
+		if (writeToStorage) {
 			GriefPreventionPlus.addLogEntry(newClaim.getOwnerName() + " made a new claim (id " + newClaim.id + ") at " + newClaim.locationToString());
 		}
 
 		this.claims.put(newClaim.id, newClaim);
 
 		this.posClaimsAdd(newClaim);
+		this.ownerIndexAdd(newClaim);
 
 		// except for administrative claims (which have no owner), update the
 		// owner's playerData with the new claim
 		if (!newClaim.isAdminClaim() && writeToStorage) {
 			final PlayerData ownerData = this.getPlayerData(newClaim.getOwnerID());
-			ownerData.getClaims().add(newClaim);
+			ownerData.addOwnedClaim(newClaim);
 			this.savePlayerData(newClaim.getOwnerID(), ownerData);
 		}
+		return true;
 	}
 
 	abstract int clearOrphanClaims();
 
 	abstract void close();
 
-	abstract void dbNewClaim(Claim claim);
+	/** writes a new claim and gives it its id
+	 *  @return false if the claim couldn't get an id */
+	abstract boolean dbNewClaim(Claim claim);
 
 	abstract void dbSetPerm(Integer claimId, String permString, int perm);
 
 	abstract void dbSetPerm(Integer claimId, UUID playerId, int perm);
 
+	/** sets a permission on many claims. storages that can write them together should override this */
+	void dbSetPerm(List<Integer> claimIds, String permString, int perm) {
+		for (final Integer claimId : claimIds) {
+			this.dbSetPerm(claimId, permString, perm);
+		}
+	}
+
+	/** sets a permission on many claims. storages that can write them together should override this */
+	void dbSetPerm(List<Integer> claimIds, UUID playerId, int perm) {
+		for (final Integer claimId : claimIds) {
+			this.dbSetPerm(claimId, playerId, perm);
+		}
+	}
+
 	/** Unset all claim's perms */
 	abstract void dbUnsetPerm(Integer claimId);
 
@@ -882,17 +1062,21 @@ public abstract class DataStore {
 	// this will return 0 when he's offline, and the correct number when online.
 	int getGroupBonusBlocks(UUID playerID) {
 		final Player player = GriefPreventionPlus.getInstance().getServer().getPlayer(playerID);
-		if (player != null) {
-			int bonusBlocks = 0;
-			for (final Entry<String, Integer> e : this.permissionToBonusBlocksMap.entrySet()) {
-				if ((player != null) && player.hasPermission(e.getKey())) {
-					bonusBlocks += e.getValue();
-				}
-			}
-			return bonusBlocks;
-		} else {
+		if (player == null) {
 			return 0;
 		}
+		return this.getPlayerData(playerID).getGroupBonusBlocks(player);
+	}
+
+	/** sums the bonus blocks of every group the player is in. this checks every group permission, use getGroupBonusBlocks */
+	int computeGroupBonusBlocks(Player player) {
+		int bonusBlocks = 0;
+		for (final Entry<String, Integer> e : this.permissionToBonusBlocksMap.entrySet()) {
+			if (player.hasPermission(e.getKey())) {
+				bonusBlocks += e.getValue();
+			}
+		}
+		return bonusBlocks;
 	}
 
 	abstract PlayerData getPlayerDataFromStorage(UUID playerID);
@@ -900,51 +1084,15 @@ public abstract class DataStore {
 	abstract void cachePlayersData();
 	
 	void posClaimsAdd(Claim claim) {
-		final int lx = claim.getLesserBoundaryCorner().getBlockX() >> 8;
-		final int lz = claim.getLesserBoundaryCorner().getBlockZ() >> 8;
-
-		final int gx = claim.getGreaterBoundaryCorner().getBlockX() >> 8;
-		final int gz = claim.getGreaterBoundaryCorner().getBlockZ() >> 8;
-
-		for (int i = lx; i <= gx; i++) {
-			for (int j = lz; j <= gz; j++) {
-				Map<Integer, Claim> claimMap = this.posClaims.get(coordsHashCode(i, j));
-				if (claimMap == null) {
-					claimMap = new HashMap<Integer, Claim>();
-					this.posClaims.put(coordsHashCode(i, j), claimMap);
-				}
-				claimMap.put(claim.getID(), claim);
-			}
-		}
+		this.claimIndex.add(claim);
 	}
 
 	Claim posClaimsGet(Location loc) {
-		final Map<Integer, Claim> claimMap = this.posClaims.get(coordsHashCode(loc.getBlockX() >> 8, loc.getBlockZ() >> 8));
-		if (claimMap != null) {
-			for (final Claim claim : claimMap.values()) {
-				if (claim.contains(loc, true, false)) {
-					return claim;
-				}
-			}
-		}
-		return null;
+		return this.claimIndex.get(loc.getWorld().getUID(), loc.getBlockX(), loc.getBlockZ());
 	}
 
 	void posClaimsRemove(Claim claim) {
-		final int lx = claim.getLesserBoundaryCorner().getBlockX() >> 8;
-		final int lz = claim.getLesserBoundaryCorner().getBlockZ() >> 8;
-
-		final int gx = claim.getGreaterBoundaryCorner().getBlockX() >> 8;
-		final int gz = claim.getGreaterBoundaryCorner().getBlockZ() >> 8;
-
-		for (int i = lx; i <= gx; i++) {
-			for (int j = lz; j <= gz; j++) {
-				final Map<Integer, Claim> claimMap = this.posClaims.get(coordsHashCode(i, j));
-				if (claimMap != null) {
-					claimMap.remove(claim.getID());
-				}
-			}
-		}
+		this.claimIndex.remove(claim);
 	}
 
 	// updates the database with a group's bonus blocks
@@ -981,6 +1129,20 @@ public abstract class DataStore {
 		return new UUID(msl, lsl);
 	}
 
+	/** Converts an UUID to an array of 16 bytes */
+	public static byte[] toBytes(UUID uuid) {
+		final byte[] bytes = new byte[16];
+		long msl = uuid.getMostSignificantBits();
+		long lsl = uuid.getLeastSignificantBits();
+		for (int i = 7; i >= 0; i--) {
+			bytes[i] = (byte) msl;
+			bytes[i + 8] = (byte) lsl;
+			msl >>>= 8;
+			lsl >>>= 8;
+		}
+		return bytes;
+	}
+
 	/** Converts an UUID to an hex number using the 0x format */
 	public static String UUIDtoHexString(UUID uuid) {
 		if (uuid == null) {
@@ -989,6 +1151,8 @@ public abstract class DataStore {
 		return "0x" + org.apache.commons.lang.StringUtils.leftPad(Long.toHexString(uuid.getMostSignificantBits()), 16, "0") + org.apache.commons.lang.StringUtils.leftPad(Long.toHexString(uuid.getLeastSignificantBits()), 16, "0");
 	}
 
+	/** @deprecated the claim index uses collision-free long keys, see ClaimIndex.cellKey() */
+	@Deprecated
 	public static int coordsHashCode(int x, int z) {
 		return (z ^ (x << 16));
 	}
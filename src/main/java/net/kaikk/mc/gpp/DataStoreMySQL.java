@@ -20,14 +20,49 @@ along with this program.  If not, see <http://www.gnu.org/licenses/>.
 package net.kaikk.mc.gpp;
 
 import org.bukkit.World;
+import org.bukkit.entity.Player;
 import java.sql.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 //singleton class which manages all GriefPrevention data (except for config options)
 public class DataStoreMySQL extends DataStore{
 
-    private Connection databaseConnection = null;
+    // every db operation borrows a connection from the pool, and gives it back when it's done
+    private ConnectionPool connectionPool;
+
+    // rows in a single multi-row insert or batch
+    private static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    // GriefPrevention's claimdata columns with the builders, containers, accessors and managers lists
+    private static final int[] GP_PERMISSION_COLUMNS = { 5, 6, 7, 8 };
+    private static final ClaimPermission[] GP_PERMISSION_LEVELS = { ClaimPermission.BUILD, ClaimPermission.CONTAINER, ClaimPermission.ACCESS, ClaimPermission.MANAGE };
+
+    // claim and permission writes run on this thread, in order, so they don't stall the server
+    private final ExecutorService writeQueue = Executors.newSingleThreadExecutor(r -> {
+        final Thread thread = new Thread(r, "GriefPreventionPlus - MySQL write queue");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // claim ids are reserved in blocks on gpp_sequence, so new claims get their id without waiting for the database
+    private static final int CLAIM_ID_BLOCK_SIZE = 100;
+    // next id to give, and end (exclusive) of the current block
+    private int nextClaimId, claimIdBlockEnd;
+    // first id of the blocks reserved in background, in reservation order. none is thrown away
+    private final Queue<Integer> prefetchedClaimIds = new ConcurrentLinkedQueue<Integer>();
+    // a background reservation is queued and not done yet
+    private final AtomicBoolean prefetchingClaimIds = new AtomicBoolean();
+    // a failed claim insert is tried again this many times, waiting twice as long each time
+    private static final int CLAIM_INSERT_RETRIES = 3;
+    private static final long CLAIM_INSERT_RETRY_MILLIS = 500;
+
     private final String databaseUrl, userName, password;
 
     DataStoreMySQL(String url, String userName, String password){
@@ -37,6 +72,16 @@ public class DataStoreMySQL extends DataStore{
         this.password = password;
     }
 
+    /** @return the connection used by initialize(). logs the usual error if the database can't be reached */
+    private Connection borrowInitialConnection() throws SQLException {
+        try {
+            return this.connectionPool.borrow();
+        } catch (final SQLException e) {
+            GriefPreventionPlus.addLogEntry("ERROR: Unable to connect to database.  Check your config file settings.");
+            throw e;
+        }
+    }
+
     // initialization!
     @Override
     void initialize() throws Exception {
@@ -49,273 +94,276 @@ public class DataStoreMySQL extends DataStore{
         }
 
         try {
-            this.refreshDataConnection();
+            // set username/pass properties
+            final Properties connectionProps = new Properties();
+            connectionProps.put("user", this.userName);
+            connectionProps.put("password", this.password);
+            connectionProps.put("autoReconnect", "true");
+            connectionProps.put("maxReconnects", "4");
+            // the driver keeps the prepared statements of every connection
+            connectionProps.put("cachePrepStmts", "true");
+            connectionProps.put("prepStmtCacheSize", "64");
+            // send batches in as few round trips as possible
+            connectionProps.put("rewriteBatchedStatements", "true");
+
+            final Config config = GriefPreventionPlus.getInstance().config;
+            this.connectionPool = new ConnectionPool(this.databaseUrl, connectionProps, config.databasePoolMaxSize, config.databasePoolBorrowTimeoutSeconds * 1000L, config.databasePoolLeakDetectionSeconds * 1000L);
         } catch (final Exception e2) {
             GriefPreventionPlus.addLogEntry("ERROR: Unable to connect to database.  Check your config file settings.");
             throw e2;
         }
 
-        try {
-            final Statement statement = this.databaseConnection.createStatement();
-
-            ResultSet results = statement.executeQuery("SHOW TABLES LIKE 'gpp_claims'");
-            if (!results.next()) {
-                statement.execute("CREATE TABLE IF NOT EXISTS gpp_claims (id int(11) NOT NULL AUTO_INCREMENT,owner binary(16) NOT NULL COMMENT 'UUID',world binary(16) NOT NULL COMMENT 'UUID',lesserX mediumint(9) NOT NULL,lesserZ mediumint(9) NOT NULL,greaterX mediumint(9) NOT NULL,greaterZ mediumint(9) NOT NULL,parentid int(11),creation bigint(20) NOT NULL,PRIMARY KEY (id));");
+        // the initialization uses a single connection. it goes back to the pool even if the initialization fails
+        try (Connection connection = this.borrowInitialConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                ResultSet results = statement.executeQuery("SHOW TABLES LIKE 'gpp_claims'");
+                if (!results.next()) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS gpp_claims (id int(11) NOT NULL AUTO_INCREMENT,owner binary(16) NOT NULL COMMENT 'UUID',world binary(16) NOT NULL COMMENT 'UUID',lesserX mediumint(9) NOT NULL,lesserZ mediumint(9) NOT NULL,greaterX mediumint(9) NOT NULL,greaterZ mediumint(9) NOT NULL,parentid int(11),creation bigint(20) NOT NULL,PRIMARY KEY (id));");
 
-                statement.execute("CREATE TABLE IF NOT EXISTS gpp_groupdata (gname varchar(100) NOT NULL,blocks int(11) NOT NULL,UNIQUE KEY gname (gname));");
+                    statement.execute("CREATE TABLE IF NOT EXISTS gpp_groupdata (gname varchar(100) NOT NULL,blocks int(11) NOT NULL,UNIQUE KEY gname (gname));");
 
-                statement.execute("CREATE TABLE IF NOT EXISTS gpp_permsbukkit (claimid int(11) NOT NULL,pname varchar(80) NOT NULL,perm tinyint(4) NOT NULL,PRIMARY KEY (claimid,pname),KEY claimid (claimid));");
+                    statement.execute("CREATE TABLE IF NOT EXISTS gpp_permsbukkit (claimid int(11) NOT NULL,pname varchar(80) NOT NULL,perm tinyint(4) NOT NULL,PRIMARY KEY (claimid,pname),KEY claimid (claimid));");
 
-                statement.execute("CREATE TABLE IF NOT EXISTS gpp_permsplayer (claimid int(11) NOT NULL,player binary(16) NOT NULL COMMENT 'UUID',perm tinyint(4) NOT NULL,PRIMARY KEY (claimid,player),KEY claimid (claimid));");
+                    statement.execute("CREATE TABLE IF NOT EXISTS gpp_permsplayer (claimid int(11) NOT NULL,player binary(16) NOT NULL COMMENT 'UUID',perm tinyint(4) NOT NULL,PRIMARY KEY (claimid,player),KEY claimid (claimid));");
 
-                statement.execute("CREATE TABLE IF NOT EXISTS gpp_playerdata (player binary(16) NOT NULL COMMENT 'UUID',accruedblocks int(11) NOT NULL,bonusblocks int(11) NOT NULL,lastseen bigint(20) NOT NULL, PRIMARY KEY (player));");
+                    statement.execute("CREATE TABLE IF NOT EXISTS gpp_playerdata (player binary(16) NOT NULL COMMENT 'UUID',accruedblocks int(11) NOT NULL,bonusblocks int(11) NOT NULL,lastseen bigint(20) NOT NULL, PRIMARY KEY (player));");
 
-                results = statement.executeQuery("SHOW TABLES LIKE 'griefprevention_claimdata';");
-                if (results.next()) {
-                    // migration from griefprevention
-                    GriefPreventionPlus.addLogEntry("Migrating data from Grief Prevention. It may take some time.");
+                    results = statement.executeQuery("SHOW TABLES LIKE 'griefprevention_claimdata';");
+                    if (results.next()) {
+                        // migration from griefprevention
+                        GriefPreventionPlus.addLogEntry("Migrating data from Grief Prevention. It may take some time.");
 
-                    // claims
-                    results = statement.executeQuery("SELECT * FROM griefprevention_claimdata ORDER BY parentid ASC;");
-                    final Statement statement2 = this.databaseConnection.createStatement();
+                        // claims
+                        results = statement.executeQuery("SELECT * FROM griefprevention_claimdata ORDER BY parentid ASC;");
+                        long i = 0;
+                        long j = 0;
+                        long k = 0;
 
-                    String tString;
-                    String playerId;
-                    long i = 0;
-                    long j = 0;
-                    long k = 0;
+                        long claimId = 1;
+                        Long nextParentId;
 
-                    long claimId = 1;
-                    Long nextParentId;
+                        final HashMap<Long, Long> migratedClaims = new HashMap<Long, Long>();
+                        try (PreparedStatement insertClaim = connection.prepareStatement("INSERT INTO gpp_claims (owner, world, lesserX, lesserZ, greaterX, greaterZ, parentid, creation) VALUES (?, ?, ?, ?, ?, ?, ?, 0);");
+                                PreparedStatement insertPermBukkit = connection.prepareStatement("INSERT INTO gpp_permsbukkit VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE perm = perm | VALUES(perm);");
+                                PreparedStatement insertPermPlayer = connection.prepareStatement("INSERT INTO gpp_permsplayer VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE perm = perm | VALUES(perm);")) {
+                            while (results.next()) {
+                                UUID owner = parseGPUUID(results.getString(2));
 
-                    final HashMap<Long, Long> migratedClaims = new HashMap<Long, Long>();
-                    while (results.next()) {
-                        final String ownerString = results.getString(2);
-                        playerId = "0";
-
-                        if ((ownerString.length() == 36) && ((tString = ownerString.replace("-", "")).length() == 32)) {
-                            playerId = "0x" + tString;
-                        }
-
-                        final String[] lesser = results.getString(3).split(";");
-                        final String[] greater = results.getString(4).split(";");
-                        if ((lesser.length != 4) || (greater.length != 4)) { // wrong
-                            // corners,
-                            // skip
-                            // this
-                            // claim
-                            GriefPreventionPlus.addLogEntry("Skipping claim " + results.getLong(1) + ": wrong corners");
-                            continue;
-                        }
-
-                        final World world = GriefPreventionPlus.getInstance().getServer().getWorld(lesser[0]);
-                        if (world == null) { // this world doesn't exist, skip
-                            // this claim
-                            GriefPreventionPlus.addLogEntry("Skipping claim " + results.getLong(1) + ": world " + lesser[0] + " doesn't exist");
-                            continue;
-                        }
-
-                        // insert this claim in new claims table
-
-                        if (results.getLong(9) == -1) { // claims
-                            migratedClaims.put(results.getLong(1), claimId++);
-                            nextParentId = (long) -1;
-                            if (playerId.equals("0")) {
-                                playerId = UUIDtoHexString(GriefPreventionPlus.UUID1); // administrative
-                                // claims
-                            }
-                        } else { // subclaims
-                            nextParentId = migratedClaims.get(results.getLong(9));
-                        }
-
-                        if (nextParentId == null) {
-                            GriefPreventionPlus.addLogEntry("Skipping orphan subclaim (parentid: " + results.getLong(9) + ").");
-                            continue;
-                        }
+                                final String[] lesser = results.getString(3).split(";");
+                                final String[] greater = results.getString(4).split(";");
+                                final int[] corners = parseGPCorners(lesser, greater);
+                                if (corners == null) { // wrong corners, skip this claim
+                                    GriefPreventionPlus.addLogEntry("Skipping claim " + results.getLong(1) + ": wrong corners");
+                                    continue;
+                                }
 
-                        statement2.executeUpdate("INSERT INTO gpp_claims (owner, world, lesserX, lesserZ, greaterX, greaterZ, parentid, creation) VALUES (" + playerId + ", " + UUIDtoHexString(world.getUID()) + ", " + lesser[1] + ", " + lesser[3] + ", " + greater[1] + ", " + greater[3] + ", " + nextParentId + ", 0);");
+                                final World world = GriefPreventionPlus.getInstance().getServer().getWorld(lesser[0]);
+                                if (world == null) { // this world doesn't exist, skip
+                                    // this claim
+                                    GriefPreventionPlus.addLogEntry("Skipping claim " + results.getLong(1) + ": world " + lesser[0] + " doesn't exist");
+                                    continue;
+                                }
 
-                        i++;
+                                // insert this claim in new claims table
 
-                        // convert permissions for this claim
-                        // builders
-                        if (!results.getString(5).isEmpty()) {
-                            for (final String s : results.getString(5).split(";")) {
-                                if (s.startsWith("[")) {
-                                    statement2.executeUpdate("INSERT INTO gpp_permsbukkit VALUES(" + i + ", '" + s.substring(1, s.length() - 1) + "', 2) ON DUPLICATE KEY UPDATE perm = perm | 2;");
-                                } else {
-                                    if ((s.length() == 36) && ((tString = s.replace("-", "")).length() == 32)) {
-                                        statement2.executeUpdate("INSERT INTO gpp_permsplayer VALUES(" + i + ", 0x" + tString + ", 2) ON DUPLICATE KEY UPDATE perm = perm | 2;");
-                                    } else if (s.equals("public")) {
-                                        statement2.executeUpdate("INSERT INTO gpp_permsplayer VALUES(" + i + ", " + UUIDtoHexString(GriefPreventionPlus.UUID0) + ", 2) ON DUPLICATE KEY UPDATE perm = perm | 2;");
+                                if (results.getLong(9) == -1) { // claims
+                                    migratedClaims.put(results.getLong(1), claimId++);
+                                    nextParentId = (long) -1;
+                                    if (owner == null) {
+                                        owner = GriefPreventionPlus.UUID1; // administrative claims
                                     }
+                                } else { // subclaims
+                                    nextParentId = migratedClaims.get(results.getLong(9));
                                 }
-                                j++;
-                            }
-                        }
 
-                        // containers
-                        if (!results.getString(6).isEmpty()) {
-                            for (final String s : results.getString(6).split(";")) {
-                                if (s.startsWith("[")) {
-                                    statement2.executeUpdate("INSERT INTO gpp_permsbukkit VALUES(" + i + ", '" + s.substring(1, s.length() - 1) + "', 4) ON DUPLICATE KEY UPDATE perm = perm | 4;");
-                                } else {
-                                    if ((s.length() == 36) && ((tString = s.replace("-", "")).length() == 32)) {
-                                        statement2.executeUpdate("INSERT INTO gpp_permsplayer VALUES(" + i + ", 0x" + tString + ", 4) ON DUPLICATE KEY UPDATE perm = perm | 4;");
-                                    } else if (s.equals("public")) {
-                                        statement2.executeUpdate("INSERT INTO gpp_permsplayer VALUES(" + i + ", " + UUIDtoHexString(GriefPreventionPlus.UUID0) + ", 4) ON DUPLICATE KEY UPDATE perm = perm | 4;");
-                                    }
+                                if (nextParentId == null) {
+                                    GriefPreventionPlus.addLogEntry("Skipping orphan subclaim (parentid: " + results.getLong(9) + ").");
+                                    continue;
                                 }
-                                j++;
-                            }
-                        }
 
-                        // accessors
-                        if (!results.getString(7).isEmpty()) {
-                            for (final String s : results.getString(7).split(";")) {
-                                if (s.startsWith("[")) {
-                                    statement2.executeUpdate("INSERT INTO gpp_permsbukkit VALUES(" + i + ", '" + s.substring(1, s.length() - 1) + "', 8) ON DUPLICATE KEY UPDATE perm = perm | 8;");
-                                } else {
-                                    if ((s.length() == 36) && ((tString = s.replace("-", "")).length() == 32)) {
-                                        statement2.executeUpdate("INSERT INTO gpp_permsplayer VALUES(" + i + ", 0x" + tString + ", 8) ON DUPLICATE KEY UPDATE perm = perm | 8;");
-                                    } else if (s.equals("public")) {
-                                        statement2.executeUpdate("INSERT INTO gpp_permsplayer VALUES(" + i + ", " + UUIDtoHexString(GriefPreventionPlus.UUID0) + ", 8) ON DUPLICATE KEY UPDATE perm = perm | 8;");
+                                // subclaims take the owner of their top level claim, the stored one isn't used
+                                setUUID(insertClaim, 1, owner != null ? owner : GriefPreventionPlus.UUID0);
+                                setUUID(insertClaim, 2, world.getUID());
+                                insertClaim.setInt(3, corners[0]);
+                                insertClaim.setInt(4, corners[1]);
+                                insertClaim.setInt(5, corners[2]);
+                                insertClaim.setInt(6, corners[3]);
+                                insertClaim.setLong(7, nextParentId);
+                                insertClaim.addBatch();
+
+                                i++;
+
+                                // convert permissions for this claim
+                                for (int c = 0; c < GP_PERMISSION_COLUMNS.length; c++) {
+                                    final String column = results.getString(GP_PERMISSION_COLUMNS[c]);
+                                    if (column.isEmpty()) {
+                                        continue;
                                     }
-                                }
-                                j++;
-                            }
-                        }
 
-                        // managers
-                        if (!results.getString(8).isEmpty()) {
-                            for (final String s : results.getString(8).split(";")) {
-                                if (s.startsWith("[")) {
-                                    statement2.executeUpdate("INSERT INTO gpp_permsbukkit VALUES(" + i + ", '" + s.substring(1, s.length() - 1) + "', 1) ON DUPLICATE KEY UPDATE perm = perm | 1;");
-                                } else {
-                                    if ((s.length() == 36) && ((tString = s.replace("-", "")).length() == 32)) {
-                                        statement2.executeUpdate("INSERT INTO gpp_permsplayer VALUES(" + i + ", 0x" + tString + ", 1) ON DUPLICATE KEY UPDATE perm = perm | 1;");
-                                    } else if (s.equals("public")) {
-                                        statement2.executeUpdate("INSERT INTO gpp_permsplayer VALUES(" + i + ", " + UUIDtoHexString(GriefPreventionPlus.UUID0) + ", 1) ON DUPLICATE KEY UPDATE perm = perm | 1;");
+                                    for (final String s : column.split(";")) {
+                                        if (s.startsWith("[")) {
+                                            insertPermBukkit.setLong(1, i);
+                                            insertPermBukkit.setString(2, s.substring(1, s.length() - 1));
+                                            insertPermBukkit.setInt(3, GP_PERMISSION_LEVELS[c].perm);
+                                            insertPermBukkit.addBatch();
+                                        } else {
+                                            final UUID playerId = s.equals("public") ? GriefPreventionPlus.UUID0 : parseGPUUID(s);
+                                            if (playerId != null) {
+                                                insertPermPlayer.setLong(1, i);
+                                                setUUID(insertPermPlayer, 2, playerId);
+                                                insertPermPlayer.setInt(3, GP_PERMISSION_LEVELS[c].perm);
+                                                insertPermPlayer.addBatch();
+                                            }
+                                        }
+                                        j++;
                                     }
                                 }
-                                j++;
+
+                                // the migration queues its inserts, in order, and sends them in batches
+                                if ((i % MAX_ROWS_PER_STATEMENT) == 0) {
+                                    insertClaim.executeBatch();
+                                    insertPermBukkit.executeBatch();
+                                    insertPermPlayer.executeBatch();
+                                }
                             }
+
+                            insertClaim.executeBatch();
+                            insertPermBukkit.executeBatch();
+                            insertPermPlayer.executeBatch();
                         }
-                    }
 
-                    results = statement.executeQuery("SELECT name, accruedblocks, bonusblocks FROM griefprevention_playerdata;");
+                        results = statement.executeQuery("SELECT name, accruedblocks, bonusblocks FROM griefprevention_playerdata;");
 
-                    final Map<String, Integer[]> claimBlocksMap = new HashMap<String, Integer[]>();
-                    while (results.next()) {
-                        final String ownerString = results.getString(1);
+                        final Map<UUID, Integer[]> claimBlocksMap = new HashMap<UUID, Integer[]>();
+                        while (results.next()) {
+                            final String ownerString = results.getString(1);
+                            final UUID playerId = parseGPUUID(ownerString);
 
-                        if ((ownerString.length() == 36) && ((tString = ownerString.replace("-", "")).length() == 32)) {
-                            final Integer[] existingBlocks = claimBlocksMap.get(tString);
-                            if (existingBlocks != null) {
-                                GriefPreventionPlus.addLogEntry("WARNING: Found duplicated key for " + tString);
+                            if (playerId != null) {
+                                final Integer[] existingBlocks = claimBlocksMap.get(playerId);
+                                if (existingBlocks != null) {
+                                    GriefPreventionPlus.addLogEntry("WARNING: Found duplicated key for " + playerId);
 
-                                final int a = existingBlocks[0];
-                                final int b = existingBlocks[1];
+                                    final int a = existingBlocks[0];
+                                    final int b = existingBlocks[1];
 
-                                final Integer[] blocks = { (results.getInt(2) == a ? a : results.getInt(2) + a), (results.getInt(3) == b ? b : results.getInt(3) + b) };
-                                claimBlocksMap.put(tString, blocks);
+                                    final Integer[] blocks = { (results.getInt(2) == a ? a : results.getInt(2) + a), (results.getInt(3) == b ? b : results.getInt(3) + b) };
+                                    claimBlocksMap.put(playerId, blocks);
+                                } else {
+                                    final Integer[] blocks = { results.getInt(2), results.getInt(3) };
+                                    claimBlocksMap.put(playerId, blocks);
+                                }
                             } else {
-                                final Integer[] blocks = { results.getInt(2), results.getInt(3) };
-                                claimBlocksMap.put(tString, blocks);
+                                GriefPreventionPlus.addLogEntry("Skipping GriefPrevention data for user " + ownerString + ": no UUID.");
+                                continue;
                             }
+                        }
 
-                            playerId = tString;
-                        } else {
-                            GriefPreventionPlus.addLogEntry("Skipping GriefPrevention data for user " + ownerString + ": no UUID.");
-                            continue;
+                        try (PreparedStatement insertPlayerData = connection.prepareStatement("INSERT INTO gpp_playerdata VALUES (?, ?, ?, 0);")) {
+                            for (final Entry<UUID, Integer[]> gppbf : claimBlocksMap.entrySet()) {
+                                setUUID(insertPlayerData, 1, gppbf.getKey());
+                                insertPlayerData.setInt(2, gppbf.getValue()[0]);
+                                insertPlayerData.setInt(3, gppbf.getValue()[1]);
+                                insertPlayerData.addBatch();
+                                k++;
+                            }
+                            insertPlayerData.executeBatch();
                         }
-                    }
 
-                    for (final Entry<String, Integer[]> gppbf : claimBlocksMap.entrySet()) {
-                        statement2.executeUpdate("INSERT INTO gpp_playerdata VALUES (0x" + gppbf.getKey() + ", " + gppbf.getValue()[0] + ", " + gppbf.getValue()[1] + ", 0);");
-                        k++;
+                        GriefPreventionPlus.addLogEntry("Migration complete. Claims: " + i + " - Permissions: " + j + " - PlayerData: " + k);
                     }
+                } else {
+                    // database updates
 
-                    statement.close();
-                    statement2.close();
-                    GriefPreventionPlus.addLogEntry("Migration complete. Claims: " + i + " - Permissions: " + j + " - PlayerData: " + k);
-                }
-            } else {
-                // database updates
-
-                // v13.0 - added lastseen column to the playerdata table
-                Statement s = this.databaseConnection.createStatement();
-                ResultSet rs = s.executeQuery("SHOW COLUMNS FROM gpp_playerdata LIKE 'lastseen';");
-                if (!rs.next()) {
-                    s.executeUpdate("ALTER TABLE gpp_playerdata ADD lastseen BIGINT NOT NULL DEFAULT '0' AFTER bonusblocks;");
-                }
-                // v13.0 - added creation date column to the claims table
-                rs = s.executeQuery("SHOW COLUMNS FROM gpp_claims LIKE 'creation';");
-                if (!rs.next()) {
-                    s.executeUpdate("ALTER TABLE gpp_claims ADD creation BIGINT NOT NULL DEFAULT '0' AFTER parentid;");
+                    // v13.0 - added lastseen column to the playerdata table
+                    try (Statement s = connection.createStatement()) {
+                        ResultSet rs = s.executeQuery("SHOW COLUMNS FROM gpp_playerdata LIKE 'lastseen';");
+                        if (!rs.next()) {
+                            s.executeUpdate("ALTER TABLE gpp_playerdata ADD lastseen BIGINT NOT NULL DEFAULT '0' AFTER bonusblocks;");
+                        }
+                        // v13.0 - added creation date column to the claims table
+                        rs = s.executeQuery("SHOW COLUMNS FROM gpp_claims LIKE 'creation';");
+                        if (!rs.next()) {
+                            s.executeUpdate("ALTER TABLE gpp_claims ADD creation BIGINT NOT NULL DEFAULT '0' AFTER parentid;");
+                        }
+                    }
                 }
+            } catch (final Exception e3) {
+                GriefPreventionPlus.addLogEntry("ERROR: Unable to create the necessary database table.  Details:");
+                GriefPreventionPlus.addLogEntry(e3.getMessage());
+                e3.printStackTrace();
+                throw e3;
             }
-        } catch (final Exception e3) {
-            GriefPreventionPlus.addLogEntry("ERROR: Unable to create the necessary database table.  Details:");
-            GriefPreventionPlus.addLogEntry(e3.getMessage());
-            e3.printStackTrace();
-            throw e3;
-        }
 
-        // load group data into memory
-        final Statement statement = this.databaseConnection.createStatement();
-        ResultSet results = statement.executeQuery("SELECT gname, blocks FROM gpp_groupdata;");
+            // load group data into memory
+            try (Statement statement = connection.createStatement()) {
+                ResultSet results = statement.executeQuery("SELECT gname, blocks FROM gpp_groupdata;");
 
-        while (results.next()) {
-            this.permissionToBonusBlocksMap.put(results.getString(1), results.getInt(2));
-        }
+                while (results.next()) {
+                    this.permissionToBonusBlocksMap.put(results.getString(1), results.getInt(2));
+                }
+
+                // load claims permissions into memory. each table is read once, and
+                // the permissions are given to their claims below
+                final Map<Integer, HashMap<UUID, Integer>> permissionsPlayers = new HashMap<Integer, HashMap<UUID, Integer>>();
+                final Map<Integer, HashMap<String, Integer>> permissionsBukkit = new HashMap<Integer, HashMap<String, Integer>>();
+                final Map<Integer, HashMap<String, Integer>> permissionsFakePlayer = new HashMap<Integer, HashMap<String, Integer>>();
+
+                results = statement.executeQuery("SELECT claimid, player, perm FROM gpp_permsplayer;");
+                while (results.next()) {
+                    permissionsPlayers.computeIfAbsent(results.getInt(1), k -> new HashMap<UUID, Integer>()).put(toUUID(results.getBytes(2)), results.getInt(3));
+                }
 
-        // load claims data into memory
-        results = statement.executeQuery("SELECT * FROM gpp_claims;");
-        final Statement statementPerms = this.databaseConnection.createStatement();
-        ResultSet resultsPerms;
+                results = statement.executeQuery("SELECT claimid, pname, perm FROM gpp_permsbukkit;");
+                while (results.next()) {
+                    final String pname = results.getString(2);
+                    if (pname.startsWith("#")) {
+                        permissionsFakePlayer.computeIfAbsent(results.getInt(1), k -> new HashMap<String, Integer>()).put(pname.substring(1), results.getInt(3));
+                    } else {
+                        permissionsBukkit.computeIfAbsent(results.getInt(1), k -> new HashMap<String, Integer>()).put(pname, results.getInt(3));
+                    }
+                }
 
-        while (results.next()) {
-            final int id = results.getInt(1);
-            final int parentid = results.getInt(8);
-            UUID owner = null;
-            final HashMap<UUID, Integer> permissionMapPlayers = new HashMap<UUID, Integer>();
-            final HashMap<String, Integer> permissionMapBukkit = new HashMap<String, Integer>();
-            final HashMap<String, Integer> permissionMapFakePlayer = new HashMap<String, Integer>();
+                // load claims data into memory
+                // subclaims are linked after all the top level claims are loaded
+                final Map<Claim, Integer> subclaims = new LinkedHashMap<Claim, Integer>();
+                results = statement.executeQuery("SELECT * FROM gpp_claims;");
 
-            final UUID world = toUUID(results.getBytes(3));
+                this.beginClaimsLoad();
+                while (results.next()) {
+                    final int id = results.getInt(1);
+                    final int parentid = results.getInt(8);
+                    UUID owner = null;
 
-            if (results.getBytes(2) != null) {
-                owner = toUUID(results.getBytes(2));
-            }
+                    final UUID world = toUUID(results.getBytes(3));
 
-            resultsPerms = statementPerms.executeQuery("SELECT player, perm FROM gpp_permsplayer WHERE claimid=" + id + ";");
-            while (resultsPerms.next()) {
-                permissionMapPlayers.put(toUUID(resultsPerms.getBytes(1)), resultsPerms.getInt(2));
-            }
+                    if (results.getBytes(2) != null) {
+                        owner = toUUID(results.getBytes(2));
+                    }
 
-            resultsPerms = statementPerms.executeQuery("SELECT pname, perm FROM gpp_permsbukkit WHERE claimid=" + id + ";");
-            while (resultsPerms.next()) {
-                if (resultsPerms.getString(1).startsWith("#")) {
-                    permissionMapFakePlayer.put(resultsPerms.getString(1).substring(1), resultsPerms.getInt(2));
-                } else {
-                    permissionMapBukkit.put(resultsPerms.getString(1), resultsPerms.getInt(2));
-                }
-            }
+                    final Claim claim = new Claim(world, results.getInt(4), results.getInt(5), results.getInt(6), results.getInt(7), owner, permissionsPlayers.get(id), permissionsBukkit.get(id), permissionsFakePlayer.get(id), id, results.getLong(9));
 
-            final Claim claim = new Claim(world, results.getInt(4), results.getInt(5), results.getInt(6), results.getInt(7), owner, permissionMapPlayers, permissionMapBukkit, permissionMapFakePlayer, id, results.getLong(9));
+                    if (parentid == -1) {
+                        this.addClaim(claim, false);
+                    } else {
+                        subclaims.put(claim, parentid);
+                    }
+                }
+                this.endClaimsLoad();
 
-            if (parentid == -1) {
-                this.addClaim(claim, false);
-            } else {
-                final Claim topClaim = this.claims.get(parentid);
-                if (topClaim == null) {
+                for (final Claim orphan : linkSubclaims(subclaims, this.claims)) {
                     // parent claim doesn't exist, skip this subclaim
-                    GriefPreventionPlus.addLogEntry("Orphan subclaim: " + claim.locationToString());
-                    continue;
+                    GriefPreventionPlus.addLogEntry("Orphan subclaim: " + orphan.locationToString());
                 }
-                claim.setParent(topClaim);
-                topClaim.getChildren().add(claim);
+
+                // claim ids sequence. it's moved past the claims inserted with the table's auto increment by older versions
+                statement.execute("CREATE TABLE IF NOT EXISTS gpp_sequence (name varchar(32) NOT NULL,next int(11) NOT NULL,PRIMARY KEY (name));");
+                checkClaimIdsSequence(statement);
+                statement.executeUpdate("INSERT INTO gpp_sequence (name, next) SELECT 'claims', IFNULL(MAX(id), 0) + 1 FROM gpp_claims ON DUPLICATE KEY UPDATE next = GREATEST(next, VALUES(next));");
+
+                // the first block is reserved now, so the first new claim doesn't wait for the database
+                this.nextClaimId = reserveClaimIds(connection);
+                this.claimIdBlockEnd = this.nextClaimId + CLAIM_ID_BLOCK_SIZE;
             }
         }
 
@@ -349,28 +397,25 @@ public class DataStoreMySQL extends DataStore{
             return;
         }
 
-        try {
-            this.refreshDataConnection();
-
-            final Statement statement = this.databaseConnection.createStatement();
-            statement.executeUpdate("INSERT INTO gpp_playerdata VALUES (" + UUIDtoHexString(playerData.playerID) + ", \"" + playerData.getAccruedClaimBlocks() + "\", " + playerData.getBonusClaimBlocks() + ", "+playerData.lastSeen+") ON DUPLICATE KEY UPDATE accruedblocks=" + playerData.getAccruedClaimBlocks() + ", bonusblocks=" + playerData.getBonusClaimBlocks() + ", lastseen = "+playerData.lastSeen+";");
+        try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("INSERT INTO gpp_playerdata VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE accruedblocks = VALUES(accruedblocks), bonusblocks = VALUES(bonusblocks), lastseen = VALUES(lastseen);")) {
+            setUUID(statement, 1, playerData.playerID);
+            statement.setInt(2, playerData.getAccruedClaimBlocks());
+            statement.setInt(3, playerData.getBonusClaimBlocks());
+            statement.setLong(4, playerData.lastSeen);
+            statement.executeUpdate();
         } catch (final SQLException e) {
             GriefPreventionPlus.addLogEntry("Unable to save data for player " + playerID.toString() + ".  Details:");
             GriefPreventionPlus.addLogEntry(e.getMessage());
         }
     }
 
-    /** saves changes to player data to secondary storage. MUST be called after
-     you're done making changes, otherwise a reload will lose them */
-    @Override
-    public void savePlayerData(UUID playerID, PlayerData playerData) {
-        new SavePlayerDataThread(playerID, playerData).start();
-    }
-
     /** saves changes to player data to secondary storage. MUST be called after
      you're done making changes, otherwise a reload will lose them */
     @Override
     public void savePlayerDataSync(UUID playerID, PlayerData playerData) {
+        // this write replaces the queued one
+        this.playerDataSaveQueue.discard(playerID);
+
         // ensure player data is already read from file before trying to save
         playerData.getAccruedClaimBlocks();
         playerData.getClaims();
@@ -382,19 +427,18 @@ public class DataStoreMySQL extends DataStore{
     @Override
     int clearOrphanClaims() {
         int count = 0;
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-            final Statement statement2 = this.databaseConnection.createStatement();
+        try (Connection connection = this.connectionPool.borrow(); Statement statement = connection.createStatement(); PreparedStatement delete = connection.prepareStatement("DELETE FROM gpp_claims WHERE id = ?;")) {
             final ResultSet results = statement.executeQuery("SELECT * FROM gpp_claims;");
 
             while (results.next()) {
                 final World world = GriefPreventionPlus.getInstance().getServer().getWorld(toUUID(results.getBytes(3)));
                 if ((world == null) || ((results.getInt(8) != -1) && (this.getClaim(results.getInt(8)) == null))) {
-                    statement2.executeUpdate("DELETE FROM gpp_claims WHERE id=" + results.getInt(1));
+                    delete.setInt(1, results.getInt(1));
+                    delete.addBatch();
                     count++;
                 }
             }
+            delete.executeBatch();
         } catch (final SQLException e) {
             GriefPreventionPlus.addLogEntry("SQL Error during clear orphan claims. Details: " + e.getMessage());
         }
@@ -404,204 +448,423 @@ public class DataStoreMySQL extends DataStore{
 
     @Override
     void close() {
-        if (this.databaseConnection != null) {
-            try {
-                if (!this.databaseConnection.isClosed()) {
-                    this.databaseConnection.close();
-                }
-            } catch (final SQLException e) {
+        // pending writes are done before the connections are closed
+        this.writeQueue.shutdown();
+        try {
+            if (!this.writeQueue.awaitTermination(30, TimeUnit.SECONDS)) {
+                GriefPreventionPlus.addLogEntry("MySQL write queue didn't finish in 30 seconds, some changes may be lost");
             }
-            ;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
-        this.databaseConnection = null;
+        if (this.connectionPool != null) {
+            this.connectionPool.close();
+        }
     }
 
+    /** gives the claim an id from the reserved block right away. the insert runs on the write queue,
+     *  so it's always written before any later change of the same claim */
     @Override
-    void dbNewClaim(Claim claim) {
+    boolean dbNewClaim(Claim claim) {
         try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-
-            statement.executeUpdate("INSERT INTO gpp_claims (owner, world, lesserX, lesserZ, greaterX, greaterZ, parentid, creation) VALUES (" + UUIDtoHexString(claim.getOwnerID()) + ", " + UUIDtoHexString(claim.getLesserBoundaryCorner().getWorld().getUID()) + ", " + claim.getLesserBoundaryCorner().getBlockX() + ", " + claim.getLesserBoundaryCorner().getBlockZ() + ", " + claim.getGreaterBoundaryCorner().getBlockX() + ", " + claim.getGreaterBoundaryCorner().getBlockZ() + ", " + (claim.getParent() != null ? claim.getParent().id : -1) + ", " + claim.getCreationDate() + ");", Statement.RETURN_GENERATED_KEYS);
-
-            final ResultSet result = statement.getGeneratedKeys();
-            result.next();
-            claim.id = result.getInt(1);
+            claim.setID(this.allocateClaimId());
         } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to insert data for new claim at " + claim.locationToString() + ".  Details:");
+            GriefPreventionPlus.addLogEntry("Unable to reserve an id for new claim at " + claim.locationToString() + ".  Details:");
             GriefPreventionPlus.addLogEntry(e.getMessage());
+            return false;
+        }
+
+        // the values are read now: the claim can change again before the write runs
+        final int id = claim.id, lesserX = claim.lesserX, lesserZ = claim.lesserZ, greaterX = claim.greaterX, greaterZ = claim.greaterZ;
+        final int parentId = claim.getParent() != null ? claim.getParent().id : -1;
+        final UUID owner = claim.getOwnerID(), world = claim.getWorldUID();
+        final long creation = claim.getCreationDate();
+        final String location = claim.locationToString();
+        this.queueWrite(() -> {
+            // the id is reserved for this claim, so a retry can't collide with another claim.
+            // later writes of this claim are queued after this one and wait for it
+            long wait = CLAIM_INSERT_RETRY_MILLIS;
+            for (int attempt = 0; ; attempt++) {
+                try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("INSERT INTO gpp_claims (id, owner, world, lesserX, lesserZ, greaterX, greaterZ, parentid, creation) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?);")) {
+                    statement.setInt(1, id);
+                    setUUID(statement, 2, owner);
+                    setUUID(statement, 3, world);
+                    statement.setInt(4, lesserX);
+                    statement.setInt(5, lesserZ);
+                    statement.setInt(6, greaterX);
+                    statement.setInt(7, greaterZ);
+                    statement.setInt(8, parentId);
+                    statement.setLong(9, creation);
+                    statement.executeUpdate();
+                    return;
+                } catch (final SQLException e) {
+                    GriefPreventionPlus.addLogEntry("Unable to insert data for new claim " + id + " at " + location + (attempt < CLAIM_INSERT_RETRIES ? ", retrying in " + wait + " ms" : "") + ".  Details:");
+                    GriefPreventionPlus.addLogEntry(e.getMessage());
+                }
+
+                if (attempt >= CLAIM_INSERT_RETRIES) {
+                    break;
+                }
+                try {
+                    Thread.sleep(wait);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                wait *= 2;
+            }
+
+            // the claim isn't in the database: remove it from memory too, so it doesn't vanish silently on the next restart
+            final GriefPreventionPlus instance = GriefPreventionPlus.getInstance();
+            if (instance.isEnabled()) {
+                instance.getServer().getScheduler().scheduleSyncDelayedTask(instance, () -> this.removeUnsavedClaim(claim, id, location));
+            }
+        });
+        return true;
+    }
+
+    /** removes a claim whose insert failed, and tells its owner. runs on the main thread */
+    private void removeUnsavedClaim(Claim claim, int id, String location) {
+        final Claim topClaim = claim.getParent() != null ? claim.getParent() : claim;
+        if ((claim.id != id) || (this.getClaim(topClaim.id) != topClaim) || ((claim != topClaim) && !topClaim.getChildren().contains(claim))) {
+            return; // this claim has been deleted already
+        }
+
+        GriefPreventionPlus.addLogEntry("Removing claim " + id + " at " + location + ": it couldn't be saved");
+        this.deleteClaim(claim);
+
+        // its subclaims go with it. its own permissions aren't matched by the claim's row, which doesn't exist
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow();
+                    PreparedStatement bukkit = connection.prepareStatement("DELETE FROM gpp_permsbukkit WHERE claimid = ?;");
+                    PreparedStatement players = connection.prepareStatement("DELETE FROM gpp_permsplayer WHERE claimid = ?;")) {
+                for (final PreparedStatement statement : new PreparedStatement[] { bukkit, players }) {
+                    statement.setInt(1, id);
+                    statement.executeUpdate();
+                }
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to delete the permissions of claim " + id + ".  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
+
+        final Player owner = claim.getOwnerID() != null ? GriefPreventionPlus.getInstance().getServer().getPlayer(claim.getOwnerID()) : null;
+        if (owner != null) {
+            GriefPreventionPlus.sendMessage(owner, TextMode.Err, Messages.ClaimNotSaved, location);
         }
     }
 
-    @Override
-    void dbSetPerm(Integer claimId, String permString, int perm) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
+    /** @return the next claim id of the reserved block. a new block is reserved
+     *  on the write queue when this one is running out, so the caller doesn't wait
+     *  for the database unless the whole block was used before the next one was ready */
+    synchronized int allocateClaimId() throws SQLException {
+        if (this.nextClaimId >= this.claimIdBlockEnd) {
+            final Integer prefetched = this.prefetchedClaimIds.poll();
+            final int start = prefetched != null ? prefetched : this.reserveClaimIds();
+            this.nextClaimId = start;
+            this.claimIdBlockEnd = start + CLAIM_ID_BLOCK_SIZE;
+        }
 
-            statement.executeUpdate("INSERT INTO gpp_permsbukkit VALUES (" + claimId + ", \"" + permString + "\", " + perm + ") ON DUPLICATE KEY UPDATE perm=perm | " + perm + ";");
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to set perms for claim id " + claimId + " perm [" + permString + "].  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
+        if (((this.claimIdBlockEnd - this.nextClaimId) <= (CLAIM_ID_BLOCK_SIZE / 4)) && this.prefetchedClaimIds.isEmpty() && this.prefetchingClaimIds.compareAndSet(false, true)) {
+            this.queueWrite(() -> {
+                try {
+                    // queued, not set: a block reserved while the main thread had to reserve its own is used next
+                    this.prefetchedClaimIds.add(this.reserveClaimIds());
+                } catch (final SQLException e) {
+                    GriefPreventionPlus.addLogEntry("Unable to reserve claim ids.  Details:");
+                    GriefPreventionPlus.addLogEntry(e.getMessage());
+                } finally {
+                    this.prefetchingClaimIds.set(false);
+                }
+            });
+        }
+
+        return this.nextClaimId++;
+    }
+
+    /** reserves CLAIM_ID_BLOCK_SIZE claim ids on gpp_sequence
+     *  @return the first reserved id */
+    private int reserveClaimIds() throws SQLException {
+        try (Connection connection = this.connectionPool.borrow()) {
+            return reserveClaimIds(connection);
+        }
+    }
+
+    /** reserves CLAIM_ID_BLOCK_SIZE claim ids on gpp_sequence with the specified connection
+     *  @return the first reserved id */
+    private static int reserveClaimIds(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            checkClaimIdsSequence(statement);
+            // LAST_INSERT_ID() is per connection: other servers on the same database get other blocks
+            statement.executeUpdate("UPDATE gpp_sequence SET next = LAST_INSERT_ID(next + " + CLAIM_ID_BLOCK_SIZE + ") WHERE name = 'claims';");
+            final ResultSet results = statement.executeQuery("SELECT LAST_INSERT_ID();");
+            results.next();
+            return results.getInt(1) - CLAIM_ID_BLOCK_SIZE;
+        }
+    }
+
+    /** logs a warning if a claim id is past gpp_sequence. that claim wasn't given its id by the sequence: a server with an
+     *  older version, which uses the table's auto increment, shares this database and can take ids reserved by this one */
+    private static void checkClaimIdsSequence(Statement statement) throws SQLException {
+        // MAX(id) rather than the table's AUTO_INCREMENT, which information_schema can report from a stale cache
+        final ResultSet results = statement.executeQuery("SELECT s.next, (SELECT MAX(id) FROM gpp_claims) FROM gpp_sequence AS s WHERE s.name = 'claims';");
+        if (results.next() && (results.getInt(2) >= results.getInt(1))) {
+            GriefPreventionPlus.addLogEntry("WARNING: claim " + results.getInt(2) + " is past the claim ids sequence (" + results.getInt(1) + ").");
+            GriefPreventionPlus.addLogEntry("WARNING: another server with an older GriefPreventionPlus version is using this database. New claims can be lost: update all the servers sharing this database together.");
         }
     }
 
+    /** runs a write on the write queue. writes run one at a time, in the order they're queued */
+    private void queueWrite(Runnable write) {
+        try {
+            this.writeQueue.execute(write);
+        } catch (final RejectedExecutionException e) {
+            // the queue is closed: write on this thread
+            write.run();
+        }
+    }
+
+    @Override
+    void dbSetPerm(Integer claimId, String permString, int perm) {
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("INSERT INTO gpp_permsbukkit VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE perm = perm | VALUES(perm);")) {
+                statement.setInt(1, claimId);
+                statement.setString(2, permString);
+                statement.setInt(3, perm);
+                statement.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to set perms for claim id " + claimId + " perm [" + permString + "].  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
+    }
+
     @Override
     void dbSetPerm(Integer claimId, UUID playerId, int perm) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("INSERT INTO gpp_permsplayer VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE perm = perm | VALUES(perm);")) {
+                statement.setInt(1, claimId);
+                setUUID(statement, 2, playerId);
+                statement.setInt(3, perm);
+                statement.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to set perms for claim id " + claimId + " player {" + playerId.toString() + "}.  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
+    }
 
-            statement.executeUpdate("INSERT INTO gpp_permsplayer VALUES (" + claimId + ", " + UUIDtoHexString(playerId) + ", " + perm + ") ON DUPLICATE KEY UPDATE perm=perm | " + perm + ";");
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to set perms for claim id " + claimId + " player {" + playerId.toString() + "}.  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
+    @Override
+    void dbSetPerm(List<Integer> claimIds, String permString, int perm) {
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow()) {
+                this.upsertPerms(connection, "gpp_permsbukkit", claimIds, permString, perm);
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to set perms for " + claimIds.size() + " claims perm [" + permString + "].  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    void dbSetPerm(List<Integer> claimIds, UUID playerId, int perm) {
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow()) {
+                this.upsertPerms(connection, "gpp_permsplayer", claimIds, playerId, perm);
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to set perms for " + claimIds.size() + " claims player {" + playerId.toString() + "}.  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
+    }
+
+    /** inserts or updates the permission rows of many claims, with a multi-row upsert for every MAX_ROWS_PER_STATEMENT claims
+     *  target is a String for gpp_permsbukkit, an UUID for gpp_permsplayer */
+    private void upsertPerms(Connection connection, String table, List<Integer> claimIds, Object target, int perm) throws SQLException {
+        for (int from = 0; from < claimIds.size(); from += MAX_ROWS_PER_STATEMENT) {
+            final List<Integer> ids = claimIds.subList(from, Math.min(claimIds.size(), from + MAX_ROWS_PER_STATEMENT));
+            final StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" VALUES ");
+            for (int i = 0; i < ids.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+            }
+            sql.append(" ON DUPLICATE KEY UPDATE perm = perm | VALUES(perm);");
+
+            try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (final Integer claimId : ids) {
+                    statement.setInt(index++, claimId);
+                    if (target instanceof UUID) {
+                        setUUID(statement, index++, (UUID) target);
+                    } else {
+                        statement.setString(index++, (String) target);
+                    }
+                    statement.setInt(index++, perm);
+                }
+                statement.executeUpdate();
+            }
         }
     }
 
     /** Unset all claim's perms */
     @Override
     void dbUnsetPerm(Integer claimId) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-
-            statement.executeUpdate("DELETE FROM gpp_permsplayer WHERE claimid=" + claimId + ";");
-            statement.executeUpdate("DELETE FROM gpp_permsbukkit WHERE claimid=" + claimId + ";");
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to unset perms for claim id " + claimId + ".  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
-        }
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement players = connection.prepareStatement("DELETE FROM gpp_permsplayer WHERE claimid = ?;"); PreparedStatement bukkit = connection.prepareStatement("DELETE FROM gpp_permsbukkit WHERE claimid = ?;")) {
+                players.setInt(1, claimId);
+                players.executeUpdate();
+                bukkit.setInt(1, claimId);
+                bukkit.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to unset perms for claim id " + claimId + ".  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
     }
 
     /** Unset permBukkit's perm from claim */
     @Override
     void dbUnsetPerm(Integer claimId, String permString) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-
-            statement.executeUpdate("DELETE FROM gpp_permsbukkit WHERE claimid=" + claimId + " AND pname=\"" + permString + "\";");
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to unset perms for claim id " + claimId + " perm [" + permString + "].  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
-        }
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("DELETE FROM gpp_permsbukkit WHERE claimid = ? AND pname = ?;")) {
+                statement.setInt(1, claimId);
+                statement.setString(2, permString);
+                statement.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to unset perms for claim id " + claimId + " perm [" + permString + "].  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
     }
 
     /** Unset playerId's perm from claim */
     @Override
     void dbUnsetPerm(Integer claimId, UUID playerId) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-
-            statement.executeUpdate("DELETE FROM gpp_permsplayer WHERE claimid=" + claimId + " AND player=" + UUIDtoHexString(playerId) + ";");
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to unset perms for claim id " + claimId + " player {" + playerId.toString() + "}.  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
-        }
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("DELETE FROM gpp_permsplayer WHERE claimid = ? AND player = ?;")) {
+                statement.setInt(1, claimId);
+                setUUID(statement, 2, playerId);
+                statement.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to unset perms for claim id " + claimId + " player {" + playerId.toString() + "}.  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
     }
 
     /** Unset all player claims' perms */
     @Override
     void dbUnsetPerm(UUID playerId) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-
-            statement.executeUpdate("DELETE p FROM gpp_permsplayer AS p INNER JOIN gpp_claims AS c ON p.claimid = c.id WHERE c.owner=" + UUIDtoHexString(playerId) + ";");
-            statement.executeUpdate("DELETE p FROM gpp_permsbukkit AS p INNER JOIN gpp_claims AS c ON p.claimid = c.id WHERE c.owner=" + UUIDtoHexString(playerId) + ";");
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to unset perms for " + playerId.toString() + "'s claims.  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
-        }
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement players = connection.prepareStatement("DELETE p FROM gpp_permsplayer AS p INNER JOIN gpp_claims AS c ON p.claimid = c.id WHERE c.owner = ?;"); PreparedStatement bukkit = connection.prepareStatement("DELETE p FROM gpp_permsbukkit AS p INNER JOIN gpp_claims AS c ON p.claimid = c.id WHERE c.owner = ?;")) {
+                setUUID(players, 1, playerId);
+                players.executeUpdate();
+                setUUID(bukkit, 1, playerId);
+                bukkit.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to unset perms for " + playerId.toString() + "'s claims.  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
     }
 
     /** Unset permbukkit perms from all owner's claim */
     @Override
     void dbUnsetPerm(UUID owner, String permString) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-
-            statement.executeUpdate("DELETE p FROM gpp_permsbukkit AS p INNER JOIN gpp_claims AS c ON p.claimid = c.id WHERE c.owner=" + UUIDtoHexString(owner) + " AND p.pname=\"" + permString + "\";");
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to unset [" + permString + "] perms from {" + owner.toString() + "}'s claims.  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
-        }
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("DELETE p FROM gpp_permsbukkit AS p INNER JOIN gpp_claims AS c ON p.claimid = c.id WHERE c.owner = ? AND p.pname = ?;")) {
+                setUUID(statement, 1, owner);
+                statement.setString(2, permString);
+                statement.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to unset [" + permString + "] perms from {" + owner.toString() + "}'s claims.  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
     }
 
     /** Unset playerId perms from all owner's claim */
     @Override
     void dbUnsetPerm(UUID owner, UUID playerId) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-
-            statement.executeUpdate("DELETE p FROM gpp_permsplayer AS p INNER JOIN gpp_claims AS c ON p.claimid = c.id WHERE c.owner=" + UUIDtoHexString(owner) + " AND p.player=" + UUIDtoHexString(playerId) + ";");
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to unset {" + playerId.toString() + "} perms from {" + owner.toString() + "}'s claims.  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
-        }
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("DELETE p FROM gpp_permsplayer AS p INNER JOIN gpp_claims AS c ON p.claimid = c.id WHERE c.owner = ? AND p.player = ?;")) {
+                setUUID(statement, 1, owner);
+                setUUID(statement, 2, playerId);
+                statement.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to unset {" + playerId.toString() + "} perms from {" + owner.toString() + "}'s claims.  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
     }
 
     @Override
     void dbUpdateLocation(Claim claim) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-
-            statement.executeUpdate("UPDATE gpp_claims SET lesserX=" + claim.getLesserBoundaryCorner().getBlockX() + ", lesserZ=" + claim.getLesserBoundaryCorner().getBlockZ() + ", greaterX=" + claim.getGreaterBoundaryCorner().getBlockX() + ", greaterZ=" + claim.getGreaterBoundaryCorner().getBlockZ() + " WHERE id=" + claim.id);
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to update location for claim id " + claim.id + ".  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
-        }
+        // the values are read now: the claim can change again before the write runs
+        final int id = claim.id, lesserX = claim.lesserX, lesserZ = claim.lesserZ, greaterX = claim.greaterX, greaterZ = claim.greaterZ;
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("UPDATE gpp_claims SET lesserX = ?, lesserZ = ?, greaterX = ?, greaterZ = ? WHERE id = ?;")) {
+                statement.setInt(1, lesserX);
+                statement.setInt(2, lesserZ);
+                statement.setInt(3, greaterX);
+                statement.setInt(4, greaterZ);
+                statement.setInt(5, id);
+                statement.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to update location for claim id " + id + ".  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
     }
 
     @Override
     void dbUpdateOwner(Claim claim) {
-        try {
-            this.refreshDataConnection();
-            final Statement statement = this.databaseConnection.createStatement();
-
-            statement.executeUpdate("UPDATE gpp_claims SET owner=" + UUIDtoHexString(claim.getOwnerID()) + " WHERE id=" + claim.id);
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to update owner for claim id " + claim.id + ".  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
-        }
+        final int id = claim.id;
+        final UUID owner = claim.getOwnerID();
+        this.queueWrite(() -> {
+            try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("UPDATE gpp_claims SET owner = ? WHERE id = ?;")) {
+                setUUID(statement, 1, owner);
+                statement.setInt(2, id);
+                statement.executeUpdate();
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to update owner for claim id " + id + ".  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+            }
+        });
     }
 
     // deletes a claim from the database (this delete subclaims too)
     @Override
     void deleteClaimFromSecondaryStorage(Claim claim) {
-        try {
-            this.refreshDataConnection();
-
-            final Statement statement = this.databaseConnection.createStatement();
-            if (claim.getChildren().isEmpty()) {
-                statement.execute("DELETE p FROM gpp_claims AS c RIGHT JOIN gpp_permsbukkit AS p ON c.id = p.claimid WHERE c.id=" + claim.id + ";");
-                statement.execute("DELETE p FROM gpp_claims AS c RIGHT JOIN gpp_permsplayer AS p ON c.id = p.claimid WHERE c.id=" + claim.id + ";");
-                statement.execute("DELETE FROM gpp_claims WHERE id=" + claim.id + ";");
-            } else {
-                statement.execute("DELETE p FROM gpp_claims AS c RIGHT JOIN gpp_permsbukkit AS p ON c.id = p.claimid WHERE c.id=" + claim.id + " OR c.parentid=" + claim.id + ";");
-                statement.execute("DELETE p FROM gpp_claims AS c RIGHT JOIN gpp_permsplayer AS p ON c.id = p.claimid WHERE c.id=" + claim.id + " OR c.parentid=" + claim.id + ";");
-                statement.execute("DELETE FROM gpp_claims WHERE id=" + claim.id + " OR parentid=" + claim.id + ";");
+        final int id = claim.id;
+        final boolean hasChildren = !claim.getChildren().isEmpty();
+        this.queueWrite(() -> {
+            // a top level claim takes its subclaims with it
+            final String where = hasChildren ? "c.id = ? OR c.parentid = ?" : "c.id = ?";
+            try (Connection connection = this.connectionPool.borrow();
+                    PreparedStatement bukkit = connection.prepareStatement("DELETE p FROM gpp_claims AS c RIGHT JOIN gpp_permsbukkit AS p ON c.id = p.claimid WHERE " + where + ";");
+                    PreparedStatement players = connection.prepareStatement("DELETE p FROM gpp_claims AS c RIGHT JOIN gpp_permsplayer AS p ON c.id = p.claimid WHERE " + where + ";");
+                    PreparedStatement claims = connection.prepareStatement("DELETE c FROM gpp_claims AS c WHERE " + where + ";")) {
+                for (final PreparedStatement statement : new PreparedStatement[] { bukkit, players, claims }) {
+                    statement.setInt(1, id);
+                    if (hasChildren) {
+                        statement.setInt(2, id);
+                    }
+                    statement.executeUpdate();
+                }
+            } catch (final SQLException e) {
+                GriefPreventionPlus.addLogEntry("Unable to delete data for claim " + id + ".  Details:");
+                GriefPreventionPlus.addLogEntry(e.getMessage());
+                e.printStackTrace();
             }
-        } catch (final SQLException e) {
-            GriefPreventionPlus.addLogEntry("Unable to delete data for claim " + claim.id + ".  Details:");
-            GriefPreventionPlus.addLogEntry(e.getMessage());
-            e.printStackTrace();
-        }
+        });
     }
 
     @Override
     PlayerData getPlayerDataFromStorage(UUID playerID) {
-        try {
-            this.refreshDataConnection();
-
-            final Statement statement = this.databaseConnection.createStatement();
-            final ResultSet results = statement.executeQuery("SELECT * FROM gpp_playerdata WHERE player=" + UUIDtoHexString(playerID) + ";");
+        try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("SELECT * FROM gpp_playerdata WHERE player = ?;")) {
+            setUUID(statement, 1, playerID);
+            final ResultSet results = statement.executeQuery();
 
             // if data for this player exists, use it
             if (results.next()) {
@@ -618,11 +881,9 @@ public class DataStoreMySQL extends DataStore{
 
     @Override
     void cachePlayersData() {
-        try {
-            this.refreshDataConnection();
-
-            final Statement statement = this.databaseConnection.createStatement();
-            final ResultSet results = statement.executeQuery("SELECT * FROM gpp_playerdata WHERE lastseen > "+(System.currentTimeMillis()-(60*60*24*30*1000L))+";");
+        try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("SELECT * FROM gpp_playerdata WHERE lastseen > ?;")) {
+            statement.setLong(1, System.currentTimeMillis() - (60 * 60 * 24 * 30 * 1000L));
+            final ResultSet results = statement.executeQuery();
 
             // if data for this player exists, use it
             while(results.next()) {
@@ -637,10 +898,7 @@ public class DataStoreMySQL extends DataStore{
     }
 
     List<PlayerData> getEntirePlayerDataFromDatabase() {
-        try {
-            this.refreshDataConnection();
-
-            final Statement statement = this.databaseConnection.createStatement();
+        try (Connection connection = this.connectionPool.borrow(); Statement statement = connection.createStatement()) {
             final ResultSet results = statement.executeQuery("SELECT * FROM gpp_playerdata;");
 
             // if data for this player exists, use it
@@ -658,51 +916,68 @@ public class DataStoreMySQL extends DataStore{
         }
     }
 
-    void refreshDataConnection() throws SQLException {
-        if ((this.databaseConnection == null) || this.databaseConnection.isClosed()) {
-            // set username/pass properties
-            final Properties connectionProps = new Properties();
-            connectionProps.put("user", this.userName);
-            connectionProps.put("password", this.password);
-            connectionProps.put("autoReconnect", "true");
-            connectionProps.put("maxReconnects", "4");
-
-            // establish connection
-            this.databaseConnection = DriverManager.getConnection(this.databaseUrl, connectionProps);
-        }
-    }
-
     // updates the database with a group's bonus blocks
     @Override
     void saveGroupBonusBlocks(String groupName, int currentValue) {
         // group bonus blocks are stored in the player data table, with player
         // name = $groupName
-        try {
-            this.refreshDataConnection();
-
-            final Statement statement = this.databaseConnection.createStatement();
-            statement.executeUpdate("INSERT INTO gpp_groupdata VALUES (\"" + groupName + "\", " + currentValue + ") ON DUPLICATE KEY UPDATE blocks=" + currentValue + ";");
+        try (Connection connection = this.connectionPool.borrow(); PreparedStatement statement = connection.prepareStatement("INSERT INTO gpp_groupdata VALUES (?, ?) ON DUPLICATE KEY UPDATE blocks = VALUES(blocks);")) {
+            statement.setString(1, groupName);
+            statement.setInt(2, currentValue);
+            statement.executeUpdate();
         } catch (final SQLException e) {
             GriefPreventionPlus.addLogEntry("Unable to save data for group " + groupName + ".  Details:");
             GriefPreventionPlus.addLogEntry(e.getMessage());
         }
     }
 
-    private class SavePlayerDataThread extends Thread {
-        private final UUID playerID;
-        private final PlayerData playerData;
+    /** gives every subclaim to its top level claim, in the map order
+     *  @return the subclaims whose top level claim isn't loaded */
+    static List<Claim> linkSubclaims(Map<Claim, Integer> subclaims, Map<Integer, Claim> claims) {
+        final List<Claim> orphans = new ArrayList<Claim>();
+        for (final Entry<Claim, Integer> e : subclaims.entrySet()) {
+            final Claim claim = e.getKey();
+            final Claim topClaim = claims.get(e.getValue());
+            if (topClaim == null) {
+                orphans.add(claim);
+                continue;
+            }
+            claim.setParent(topClaim);
+            topClaim.addChild(claim);
+        }
+        return orphans;
+    }
 
-        SavePlayerDataThread(UUID playerID, PlayerData playerData) {
-            this.playerID = playerID;
-            this.playerData = playerData;
+    /** @return the UUID of a GriefPrevention owner or trusted player string, or null if it isn't an UUID */
+    static UUID parseGPUUID(String s) {
+        if ((s.length() != 36) || (s.replace("-", "").length() != 32)) {
+            return null;
         }
+        try {
+            return UUID.fromString(s);
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** @return the x and z of GriefPrevention's "world;x;y;z" corners: lesser x, lesser z, greater x, greater z. null if they're wrong */
+    static int[] parseGPCorners(String[] lesser, String[] greater) {
+        if ((lesser.length != 4) || (greater.length != 4)) {
+            return null;
+        }
+        try {
+            return new int[] { Integer.parseInt(lesser[1]), Integer.parseInt(lesser[3]), Integer.parseInt(greater[1]), Integer.parseInt(greater[3]) };
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
 
-        @Override
-        public void run() {
-            // ensure player data is already read from file before trying to save
-            this.playerData.getAccruedClaimBlocks();
-            this.playerData.getClaims();
-            DataStoreMySQL.this.asyncSavePlayerData(this.playerID, this.playerData);
+    /** binds an UUID as 16 bytes. null is bound as 0, like UUIDtoHexString() does */
+    static void setUUID(PreparedStatement statement, int index, UUID uuid) throws SQLException {
+        if (uuid == null) {
+            statement.setInt(index, 0);
+        } else {
+            statement.setBytes(index, toBytes(uuid));
         }
     }
 }
@@ -76,6 +76,7 @@ public class DataStoreYML extends DataStore{
             }
         }
 
+        this.beginClaimsLoad();
         if (claimDataFolder.listFiles() != null){
             for (File file : claimDataFolder.listFiles()) {
                 try {
@@ -124,7 +125,7 @@ public class DataStoreYML extends DataStore{
                                 continue;
                             }
                             claim.setParent(topClaim);
-                            topClaim.getChildren().add(claim);
+                            topClaim.addChild(claim);
                         }
 
                         gpp_claims.put(claim_id, fcconfig);
@@ -137,6 +138,7 @@ public class DataStoreYML extends DataStore{
                 }
             }
         }
+        this.endClaimsLoad();
 
         GriefPreventionPlus.addLogEntry(this.claims.size() + " total claims loaded.");
 
@@ -190,17 +192,13 @@ public class DataStoreYML extends DataStore{
         }
     }
 
-    /** saves changes to player data to secondary storage. MUST be called after
-     you're done making changes, otherwise a reload will lose them */
-    @Override
-    public void savePlayerData(UUID playerID, PlayerData playerData) {
-        new SavePlayerDataThread(playerID, playerData).start();
-    }
-
     /** saves changes to player data to secondary storage. MUST be called after
      you're done making changes, otherwise a reload will lose them */
     @Override
     public void savePlayerDataSync(UUID playerID, PlayerData playerData) {
+        // this write replaces the queued one
+        this.playerDataSaveQueue.discard(playerID);
+
         // ensure player data is already read from file before trying to save
         playerData.getAccruedClaimBlocks();
         playerData.getClaims();
@@ -248,7 +246,7 @@ public class DataStoreYML extends DataStore{
 
     private Integer lastestID = null;
     @Override
-    void dbNewClaim(Claim claim) {
+    boolean dbNewClaim(Claim claim) {
         try {
             if (lastestID == null){
                 lastestID = claims.keySet().stream().mapToInt(v -> v).max().orElse(-1);
@@ -256,7 +254,7 @@ public class DataStoreYML extends DataStore{
 
             lastestID++;
 
-            claim.id = lastestID;
+            claim.setID(lastestID);
 
             File newClaimFile = new File(claimDataFolder, claim.id + ".yml");
             if (newClaimFile.exists()){
@@ -275,9 +273,11 @@ public class DataStoreYML extends DataStore{
             config.saveAsync();
 
             gpp_claims.put(claim.id, config);
+            return true;
         } catch (final Exception e) {
             GriefPreventionPlus.addLogEntry("Unable to insert data for new claim at " + claim.locationToString() + ".  Details:");
             GriefPreventionPlus.addLogEntry(e.getMessage());
+            return false;
         }
     }
 
@@ -378,13 +378,11 @@ public class DataStoreYML extends DataStore{
     @Override
     void dbUnsetPerm(UUID playerId) {
         try {
-            for (final Claim claim : GriefPreventionPlus.getInstance().getDataStore().claims.values()) {
-                if (playerId.equals(claim.getOwnerID())) {
-                    FCConfig config = gpp_claims.get(claim.getID());
-                    config.setValue("ClaimData.playerPerms", null);
-                    config.setValue("ClaimData.bukkitPerms", null);
-                    config.saveAsync();
-                }
+            for (final Claim claim : this.getClaimsOwnedBy(playerId)) {
+                FCConfig config = gpp_claims.get(claim.getID());
+                config.setValue("ClaimData.playerPerms", null);
+                config.setValue("ClaimData.bukkitPerms", null);
+                config.saveAsync();
             }
         } catch (Exception e) {
             GriefPreventionPlus.addLogEntry("Unable to unset perms for " + playerId.toString() + "'s claims.  Details:");
@@ -397,12 +395,10 @@ public class DataStoreYML extends DataStore{
     void dbUnsetPerm(UUID owner, String permString) {
         try {
             permString = permString.replace(".","§");//Fix cases where the BukkitPerm has dots
-            for (final Claim claim : GriefPreventionPlus.getInstance().getDataStore().claims.values()) {
-                if (owner.equals(claim.getOwnerID())) {
-                    FCConfig config = gpp_claims.get(claim.getID());
-                    config.setValue("ClaimData.bukkitPerms." + permString, null);
-                    config.saveAsync();
-                }
+            for (final Claim claim : this.getClaimsOwnedBy(owner)) {
+                FCConfig config = gpp_claims.get(claim.getID());
+                config.setValue("ClaimData.bukkitPerms." + permString, null);
+                config.saveAsync();
             }
         } catch (Exception e) {
             GriefPreventionPlus.addLogEntry("Unable to unset [" + permString + "] perms from {" + owner.toString() + "}'s claims.  Details:");
@@ -414,12 +410,10 @@ public class DataStoreYML extends DataStore{
     @Override
     void dbUnsetPerm(UUID owner, UUID playerId) {
         try {
-            for (final Claim claim : GriefPreventionPlus.getInstance().getDataStore().claims.values()) {
-                if (owner.equals(claim.getOwnerID())) {
-                    FCConfig config = gpp_claims.get(claim.getID());
-                    config.setValue("ClaimData.playerPerms." + playerId, null);
-                    config.saveAsync();
-                }
+            for (final Claim claim : this.getClaimsOwnedBy(owner)) {
+                FCConfig config = gpp_claims.get(claim.getID());
+                config.setValue("ClaimData.playerPerms." + playerId, null);
+                config.saveAsync();
             }
         } catch (Exception e) {
             GriefPreventionPlus.addLogEntry("Unable to unset {" + playerId.toString() + "} perms from {" + owner.toString() + "}'s claims.  Details:");
@@ -527,23 +521,4 @@ public class DataStoreYML extends DataStore{
             GriefPreventionPlus.addLogEntry(e.getMessage());
         }
     }
-
-    private class SavePlayerDataThread extends Thread {
-        private final UUID playerID;
-        private final PlayerData playerData;
-
-        SavePlayerDataThread(UUID playerID, PlayerData playerData) {
-            this.playerID = playerID;
-            this.playerData = playerData;
-            this.setName("DataStoreYML - SavePlayerDataThread");
-        }
-
-        @Override
-        public void run() {
-            // ensure player data is already read from file before trying to save
-            this.playerData.getAccruedClaimBlocks();
-            this.playerData.getClaims();
-            DataStoreYML.this.asyncSavePlayerData(this.playerID, this.playerData);
-        }
-    }
 }
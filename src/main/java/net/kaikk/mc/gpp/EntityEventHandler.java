@@ -458,7 +458,7 @@ class EntityEventHandler implements Listener {
 				continue;
 			}
 
-			claim = this.dataStore.getClaimAt(block.getLocation(), false);
+			claim = this.dataStore.getClaimAt(block, false);
 			// if the block is claimed, remove it from the list of destroyed
 			// blocks
 			if ((claim != null) && !claim.areExplosivesAllowed() && GriefPreventionPlus.getInstance().config.blockClaimExplosions) {
@@ -491,7 +491,7 @@ class EntityEventHandler implements Listener {
 		// if its an enderman
 		if (event.getEntity() instanceof Enderman) {
 			// and the block is claimed
-			if (this.dataStore.getClaimAt(event.getBlock().getLocation(), false) != null) {
+			if (this.dataStore.getClaimAt(event.getBlock(), false) != null) {
 				// he doesn't get to steal it
 				event.setCancelled(true);
 			}
@@ -642,7 +642,7 @@ class EntityEventHandler implements Listener {
 		// otherwise, apply entity-count limitations for creative worlds
 		else if (GriefPreventionPlus.getInstance().creativeRulesApply(event.getEntity().getWorld())) {
 			final PlayerData playerData = this.dataStore.getPlayerData(event.getPlayer().getUniqueId());
-			final Claim claim = this.dataStore.getClaimAt(event.getBlock().getLocation(), false, playerData.lastClaim);
+			final Claim claim = this.dataStore.getClaimAt(event.getBlock(), false, playerData.lastClaim);
 			if (claim == null) {
 				return;
 			}
@@ -681,7 +681,7 @@ class EntityEventHandler implements Listener {
 						final Claim claim = this.dataStore.getClaimAt(effected.getLocation(), false, cachedClaim);
 						if (claim != null) {
 							cachedClaim = claim;
-							if (claim.canOpenContainers(thrower) != null) {
+							if (!claim.checkOpenContainers(thrower).isAllowed()) {
 								event.setCancelled(true);
 								GriefPreventionPlus.sendMessage(thrower, TextMode.Err, Messages.NoDamageClaimedEntity, claim.getOwnerName());
 								return;
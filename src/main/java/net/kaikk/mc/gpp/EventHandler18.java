@@ -19,7 +19,6 @@
 
 package net.kaikk.mc.gpp;
 
-import org.bukkit.Location;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.EntityType;
@@ -54,7 +53,7 @@ class EventHandler18 implements Listener {
 			// claim the piston is in
 			if (GriefPreventionPlus.getInstance().config.pistonsInClaimsOnly) {
 				// if piston not in a land claim, cancel event
-				final Claim pistonClaim = GriefPreventionPlus.getInstance().getDataStore().getClaimAt(event.getBlock().getLocation(), false);
+				final Claim pistonClaim = GriefPreventionPlus.getInstance().getDataStore().getClaimAt(event.getBlock(), false);
 				if (pistonClaim == null) {
 					event.setCancelled(true);
 					return;
@@ -74,8 +73,7 @@ class EventHandler18 implements Listener {
 			else {
 				// who owns the piston, if anyone?
 				String pistonOwnerName = "_";
-				final Location pistonLocation = event.getBlock().getLocation();
-				final Claim pistonClaim = GriefPreventionPlus.getInstance().getDataStore().getClaimAt(pistonLocation, false);
+				final Claim pistonClaim = GriefPreventionPlus.getInstance().getDataStore().getClaimAt(event.getBlock(), false);
 				if (pistonClaim != null) {
 					pistonOwnerName = pistonClaim.getOwnerName();
 				}
@@ -83,7 +81,7 @@ class EventHandler18 implements Listener {
 				String movingBlockOwnerName = "_";
 				for (final Block movedBlock : event.getBlocks()) {
 					// who owns the moving block, if anyone?
-					final Claim movingBlockClaim = GriefPreventionPlus.getInstance().getDataStore().getClaimAt(movedBlock.getLocation(), false, pistonClaim);
+					final Claim movingBlockClaim = GriefPreventionPlus.getInstance().getDataStore().getClaimAt(movedBlock, false, pistonClaim);
 					if (movingBlockClaim != null) {
 						movingBlockOwnerName = movingBlockClaim.getOwnerName();
 					}
@@ -0,0 +1,97 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/** prefix trie over the trusted fake player names of a claim
+ *  a fake player matches every trusted name it starts with: one walk over
+ *  the player name collects the permissions of all the matching prefixes.
+ *  immutable, built from the claim's map and replaced when the map is replaced */
+class FakePlayerTrie {
+	static final FakePlayerTrie EMPTY = new FakePlayerTrie();
+
+	private final Node root = new Node();
+	// the map this trie was built from, null for EMPTY
+	final Map<String, Integer> source;
+
+	private FakePlayerTrie() {
+		this.source = null;
+	}
+
+	FakePlayerTrie(Map<String, Integer> permissions) {
+		this.source = permissions;
+		for (final Entry<String, Integer> e : permissions.entrySet()) {
+			Node node = this.root;
+			final String prefix = e.getKey();
+			for (int i = 0; i < prefix.length(); i++) {
+				node = node.child(prefix.charAt(i), true);
+			}
+			node.permissions |= e.getValue();
+		}
+	}
+
+	/** @return the OR of the permissions of all the prefixes of the specified name */
+	int match(String name) {
+		Node node = this.root;
+		int permissions = node.permissions;
+		for (int i = 0; i < name.length(); i++) {
+			node = node.child(name.charAt(i), false);
+			if (node == null) {
+				break;
+			}
+			permissions |= node.permissions;
+		}
+		return permissions;
+	}
+
+	private static class Node {
+		// sorted labels, same order as children
+		char[] labels = new char[0];
+		Node[] children = new Node[0];
+		int permissions;
+
+		Node child(char c, boolean create) {
+			final int i = Arrays.binarySearch(this.labels, c);
+			if (i >= 0) {
+				return this.children[i];
+			}
+			if (!create) {
+				return null;
+			}
+
+			final int at = -(i + 1);
+			final Node node = new Node();
+			final char[] labels = new char[this.labels.length + 1];
+			final Node[] children = new Node[this.children.length + 1];
+			System.arraycopy(this.labels, 0, labels, 0, at);
+			System.arraycopy(this.children, 0, children, 0, at);
+			labels[at] = c;
+			children[at] = node;
+			System.arraycopy(this.labels, at, labels, at + 1, this.labels.length - at);
+			System.arraycopy(this.children, at, children, at + 1, this.children.length - at);
+			this.labels = labels;
+			this.children = children;
+			return node;
+		}
+	}
+}
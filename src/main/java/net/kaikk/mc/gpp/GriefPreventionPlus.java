@@ -250,6 +250,8 @@ public class GriefPreventionPlus extends JavaPlugin {
 				final PlayerData playerData = this.getDataStore().getPlayerData(playerID);
 				this.getDataStore().savePlayerDataSync(playerID, playerData);
 			}
+			// write the queued saves before closing the storage
+			this.getDataStore().playerDataSaveQueue.close();
 			this.getDataStore().close();
 		}
 
@@ -0,0 +1,156 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** a minimal hash map with primitive long keys
+ *  open addressing on two parallel arrays (keys and values): entries don't
+ *  need a node object, and lookups don't box the key, so they don't allocate anything.
+ *  null values are not allowed.
+ *  single writer, many readers: the key of a slot never changes while the
+ *  table is in use, and the value is written after the key, so get() can run
+ *  on any thread without locking while the main thread writes */
+class LongObjectMap<V> {
+	private static final int INITIAL_CAPACITY = 16;
+
+	// value of a removed entry. its slot is reused only when the table is rebuilt
+	private static final Object REMOVED = new Object();
+
+	private volatile Table table;
+	private volatile int size;
+	// slots in use, removed entries included
+	private int used;
+
+	LongObjectMap() {
+		this.table = new Table(INITIAL_CAPACITY);
+	}
+
+	@SuppressWarnings("unchecked")
+	V get(long key) {
+		final Table table = this.table;
+		for (int i = indexFor(key, table.mask);; i = (i + 1) & table.mask) {
+			final Object value = table.values.get(i);
+			if (value == null) {
+				return null;
+			}
+			if ((value != REMOVED) && (table.keys.get(i) == key)) {
+				return (V) value;
+			}
+		}
+	}
+
+	/** writer thread only
+	 *  @return the previous value, or null if there was no mapping for the key */
+	@SuppressWarnings("unchecked")
+	V put(long key, V value) {
+		final Table table = this.table;
+		int i = indexFor(key, table.mask);
+		for (;; i = (i + 1) & table.mask) {
+			final Object current = table.values.get(i);
+			if (current == null) {
+				break;
+			}
+			if ((current != REMOVED) && (table.keys.get(i) == key)) {
+				table.values.set(i, value);
+				return (V) current;
+			}
+		}
+
+		// the value publishes the key
+		table.keys.set(i, key);
+		table.values.set(i, value);
+		this.size++;
+		if (++this.used > (table.length() - (table.length() >> 2))) {
+			this.rebuild();
+		}
+		return null;
+	}
+
+	/** writer thread only
+	 *  @return the removed value, or null if there was no mapping for the key */
+	@SuppressWarnings("unchecked")
+	V remove(long key) {
+		final Table table = this.table;
+		for (int i = indexFor(key, table.mask);; i = (i + 1) & table.mask) {
+			final Object current = table.values.get(i);
+			if (current == null) {
+				return null;
+			}
+			if ((current != REMOVED) && (table.keys.get(i) == key)) {
+				table.values.set(i, REMOVED);
+				this.size--;
+				return (V) current;
+			}
+		}
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/** copies the entries on a new table, dropping the removed ones. grows if it's at least half full */
+	private void rebuild() {
+		final Table oldTable = this.table;
+		final Table newTable = new Table(this.size >= (oldTable.length() >> 1) ? oldTable.length() << 1 : oldTable.length());
+		for (int i = 0; i < oldTable.length(); i++) {
+			final Object value = oldTable.values.get(i);
+			if ((value != null) && (value != REMOVED)) {
+				final long key = oldTable.keys.get(i);
+				int j = indexFor(key, newTable.mask);
+				while (newTable.values.get(j) != null) {
+					j = (j + 1) & newTable.mask;
+				}
+				newTable.keys.set(j, key);
+				newTable.values.set(j, value);
+			}
+		}
+		this.used = this.size;
+		// readers still on the old table see a complete, valid map
+		this.table = newTable;
+	}
+
+	private static int indexFor(long key, int mask) {
+		// spread the bits, cell coordinates are usually small numbers
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private static final class Table {
+		final AtomicLongArray keys;
+		final AtomicReferenceArray<Object> values;
+		final int mask;
+
+		Table(int capacity) {
+			this.keys = new AtomicLongArray(capacity);
+			this.values = new AtomicReferenceArray<Object>(capacity);
+			this.mask = capacity - 1;
+		}
+
+		int length() {
+			return this.mask + 1;
+		}
+	}
+}
@@ -70,5 +70,6 @@ public enum Messages {
 	BecomeMayor, ClaimCreationFailedOverClaimCountLimit,
 	CreateClaimFailOverlapRegion, ResizeFailOverlapRegion,
 	NoBuildPortalPermission, ShowNearbyClaims, NoChatUntilMove,
-	SetClaimBlocksSuccess, AdjustBlocksAllSuccess
+	SetClaimBlocksSuccess, AdjustBlocksAllSuccess, CreateClaimFailStorage,
+	ClaimNotSaved
 }
@@ -0,0 +1,81 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import org.bukkit.entity.Player;
+
+/** the outcome of a permission check on a claim
+ *  the denial message is formatted only when getMessage() is called, so
+ *  checks that only need a yes or no don't look up the owner name */
+public class PermissionResult {
+	static final PermissionResult ALLOWED = new PermissionResult(Reason.ALLOWED, null, null);
+	static final PermissionResult UNKNOWN_PLAYER = new PermissionResult(Reason.UNKNOWN_PLAYER, null, null);
+
+	private final Reason reason;
+
+	// the claim that denied the permission
+	private final Claim claim;
+
+	private final Player player;
+
+	private String message;
+
+	PermissionResult(Reason reason, Claim claim, Player player) {
+		this.reason = reason;
+		this.claim = claim;
+		this.player = player;
+	}
+
+	public boolean isAllowed() {
+		return this.reason == Reason.ALLOWED;
+	}
+
+	public Reason getReason() {
+		return this.reason;
+	}
+
+	/** @return the claim that denied the permission, or null */
+	public Claim getClaim() {
+		return this.claim;
+	}
+
+	/** @return the message to show to the player, or null if the permission was granted */
+	public String getMessage() {
+		if ((this.message == null) && (this.reason.message != null)) {
+			final DataStore dataStore = GriefPreventionPlus.getInstance().getDataStore();
+			String message = dataStore.getMessage(this.reason.message, this.claim.getOwnerName());
+			if (this.player.hasPermission("griefprevention.ignoreclaims")) {
+				message += "  " + dataStore.getMessage(Messages.IgnoreClaimsAdvertisement);
+			}
+			this.message = message;
+		}
+		return this.reason == Reason.UNKNOWN_PLAYER ? "" : this.message;
+	}
+
+	public enum Reason {
+		ALLOWED(null), UNKNOWN_PLAYER(null), NO_ENTRY(Messages.NoEntryPermission), NO_ACCESS(Messages.NoAccessPermission), NO_BUILD(Messages.NoBuildPermission), NO_CONTAINERS(Messages.NoContainersPermission);
+
+		final Messages message;
+
+		Reason(Messages message) {
+			this.message = message;
+		}
+	}
+}
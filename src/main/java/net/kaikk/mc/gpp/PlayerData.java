@@ -22,6 +22,7 @@ package net.kaikk.mc.gpp;
 import java.util.Date;
 import java.util.UUID;
 import java.util.Vector;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
@@ -37,6 +38,9 @@ public class PlayerData {
 	// the player's claims
 	private Vector<Claim> claims = null;
 
+	// total area of the player's claims, kept up to date with the claims list
+	private int claimedArea;
+
 	// how many claim blocks the player has earned via play time
 	private Integer accruedClaimBlocks = null;
 
@@ -101,6 +105,27 @@ public class PlayerData {
 	
 	public long lastSeen;
 
+	// (claim -> effective permissions) cache, direct mapped on the claim id
+	private PermissionCacheEntry[] permissionCache;
+	// incremented when the cached permissions of this player become stale
+	private volatile int permissionEpoch;
+	// incremented when all the cached permissions become stale
+	private static volatile int globalPermissionEpoch;
+
+	// bonus blocks from the player's groups, recomputed when the groups or
+	// the player's permissions change, or when the refresh interval expires
+	private int groupBonusBlocks;
+	private int groupBonusStamp;
+	private long groupBonusExpiration;
+
+	// the last claim this player was allowed to enter, and the permission epochs of that check
+	private Claim entryAllowedClaim;
+	private int entryAllowedEpoch;
+	private long entryAllowedExpiration;
+
+	static final LongAdder permissionCacheHits = new LongAdder();
+	static final LongAdder permissionCacheMisses = new LongAdder();
+
 	public PlayerData(UUID playerID) {
 		this.playerID = playerID;
 		this.initLastLocation();
@@ -154,19 +179,19 @@ public class PlayerData {
 		return this.bonusClaimBlocks;
 	}
 
-	public Vector<Claim> getClaims() {
+	// synchronized: the save thread can build the list too
+	public synchronized Vector<Claim> getClaims() {
 		if (this.claims == null) {
 			int totalClaimsArea = 0;
 			this.claims = new Vector<Claim>();
 
 			// find all the claims belonging to this player and note them for
 			// future reference
-			for (final Claim claim : GriefPreventionPlus.getInstance().getDataStore().claims.values()) {
-				if (this.playerID.equals(claim.getOwnerID())) {
-					this.claims.add(claim);
-					totalClaimsArea += claim.getArea();
-				}
+			for (final Claim claim : GriefPreventionPlus.getInstance().getDataStore().getClaimsOwnedBy(this.playerID)) {
+				this.claims.add(claim);
+				totalClaimsArea += claim.getArea();
 			}
+			this.claimedArea = totalClaimsArea;
 
 			// ensure player has claim blocks for his claims, and at least the
 			// minimum accrued
@@ -205,12 +230,124 @@ public class PlayerData {
 	// the number of claim blocks a player has available for claiming land
 	public int getRemainingClaimBlocks() {
 		// accrued blocks + bonus blocks + permission bonus blocks
-		int remainingBlocks = this.getAccruedClaimBlocks() + this.getBonusClaimBlocks() + GriefPreventionPlus.getInstance().getDataStore().getGroupBonusBlocks(this.playerID);
-		for (final Claim claim : this.getClaims()) {
-			remainingBlocks -= claim.getArea();
+		return this.getAccruedClaimBlocks() + this.getBonusClaimBlocks() + GriefPreventionPlus.getInstance().getDataStore().getGroupBonusBlocks(this.playerID) - this.getClaimedArea();
+	}
+
+	/** @return the total area of the player's claims */
+	public synchronized int getClaimedArea() {
+		this.getClaims();
+		return this.claimedArea;
+	}
+
+	// the following keep the claims list and the claimed area in sync.
+	// the datastore calls them after updating its owner index, so a list
+	// built here for the first time already reflects the change
+
+	synchronized void addOwnedClaim(Claim claim) {
+		if (this.claims == null) {
+			this.getClaims();
+		} else if (!this.claims.contains(claim)) {
+			this.claims.add(claim);
+			this.claimedArea += claim.getArea();
+		}
+	}
+
+	synchronized void removeOwnedClaim(Claim claim) {
+		if (this.claims == null) {
+			this.getClaims();
+		} else if (this.claims.remove(claim)) {
+			this.claimedArea -= claim.getArea();
+		}
+	}
+
+	synchronized void ownedClaimResized(int oldArea, int newArea) {
+		if (this.claims != null) {
+			this.claimedArea += newArea - oldArea;
+		}
+	}
+
+	/** recomputes the claimed area from the claims list
+	 *  @return the difference between the recomputed and the tracked area. 0 if they matched */
+	synchronized int recomputeClaimedArea() {
+		if (this.claims == null) {
+			this.getClaims();
+			return 0;
+		}
+
+		int totalClaimsArea = 0;
+		for (final Claim claim : this.claims) {
+			totalClaimsArea += claim.getArea();
+		}
+
+		final int drift = totalClaimsArea - this.claimedArea;
+		this.claimedArea = totalClaimsArea;
+		return drift;
+	}
+
+	/** @return the effective permissions of the player on the claim, from the cache if they're still valid */
+	int getCachedPermissions(Claim claim, Player player) {
+		final int size = GriefPreventionPlus.getInstance().config.permissionCache_size;
+		if ((size <= 0) || (claim.id == null)) {
+			return claim.computeEffectivePermissions(player);
+		}
+
+		PermissionCacheEntry[] cache = this.permissionCache;
+		if ((cache == null) || (cache.length != size)) {
+			cache = new PermissionCacheEntry[size];
+			this.permissionCache = cache;
+		}
+
+		final int index = (int) (((claim.id * 0x9E3779B9L) & 0xFFFFFFFFL) % size);
+		final int claimEpoch = claim.getPermissionEpoch();
+		final int playerEpoch = this.permissionEpoch + globalPermissionEpoch;
+		final long now = System.currentTimeMillis();
+
+		final PermissionCacheEntry entry = cache[index];
+		if ((entry != null) && (entry.claim == claim) && (entry.claimEpoch == claimEpoch) && (entry.playerEpoch == playerEpoch) && (now < entry.expiration)) {
+			permissionCacheHits.increment();
+			return entry.permissions;
 		}
 
-		return remainingBlocks;
+		permissionCacheMisses.increment();
+		final int permissions = claim.computeEffectivePermissions(player);
+		cache[index] = new PermissionCacheEntry(claim, claimEpoch, playerEpoch, now + (GriefPreventionPlus.getInstance().config.permissionCache_ttlSeconds * 1000L), permissions);
+		return permissions;
+	}
+
+	/** @return true if the player was allowed to enter this claim, and its permissions didn't change since then */
+	boolean isEntryAllowed(Claim claim) {
+		return (claim == this.entryAllowedClaim) && (this.entryAllowedEpoch == (claim.getPermissionEpoch() + this.permissionEpoch + globalPermissionEpoch)) && (System.currentTimeMillis() < this.entryAllowedExpiration);
+	}
+
+	/** remembers that the player is allowed to enter the claim */
+	void setEntryAllowed(Claim claim) {
+		this.entryAllowedClaim = claim;
+		this.entryAllowedEpoch = claim.getPermissionEpoch() + this.permissionEpoch + globalPermissionEpoch;
+		this.entryAllowedExpiration = System.currentTimeMillis() + (GriefPreventionPlus.getInstance().config.entryCache_ttlSeconds * 1000L);
+	}
+
+	/** drops this player's cached claim permissions and group bonus blocks
+	 *  call this if the player's bukkit permissions changed */
+	public void invalidatePermissionCache() {
+		this.permissionEpoch++;
+	}
+
+	/** drops the cached claim permissions and group bonus blocks of all players */
+	public static void invalidateAllPermissionCaches() {
+		globalPermissionEpoch++;
+	}
+
+	/** @return the bonus blocks the player gets from his groups */
+	int getGroupBonusBlocks(Player player) {
+		final DataStore dataStore = GriefPreventionPlus.getInstance().getDataStore();
+		final int stamp = this.permissionEpoch + globalPermissionEpoch + dataStore.groupBonusEpoch;
+		final long now = System.currentTimeMillis();
+		if ((stamp != this.groupBonusStamp) || (now >= this.groupBonusExpiration)) {
+			this.groupBonusBlocks = dataStore.computeGroupBonusBlocks(player);
+			this.groupBonusStamp = stamp;
+			this.groupBonusExpiration = now + (GriefPreventionPlus.getInstance().config.groupBonus_refreshSeconds * 1000L);
+		}
+		return this.groupBonusBlocks;
 	}
 
 	public void setAccruedClaimBlocks(Integer accruedClaimBlocks) {
@@ -255,4 +392,20 @@ public class PlayerData {
 			}
 		}
 	}
+
+	/** immutable, so it can be read while another thread replaces it */
+	private static final class PermissionCacheEntry {
+		final Claim claim;
+		final int claimEpoch, playerEpoch;
+		final long expiration;
+		final int permissions;
+
+		PermissionCacheEntry(Claim claim, int claimEpoch, int playerEpoch, long expiration, int permissions) {
+			this.claim = claim;
+			this.claimEpoch = claimEpoch;
+			this.playerEpoch = playerEpoch;
+			this.expiration = expiration;
+			this.permissions = permissions;
+		}
+	}
 }
@@ -0,0 +1,129 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** write-behind queue for player data saves
+ *  saves are kept in a per-player dirty map and written by a single thread
+ *  on a fixed cadence, so repeated saves of the same player between two
+ *  flushes are written once. the thread is started by the first save.
+ *  close() stops the thread and writes the pending saves on the calling thread */
+class PlayerDataSaveQueue {
+	private final DataStore dataStore;
+	private final long intervalMillis;
+
+	// player -> data waiting to be written
+	private final Map<UUID, PlayerData> pending = new ConcurrentHashMap<UUID, PlayerData>();
+	private ScheduledExecutorService executor;
+	private boolean closed;
+
+	PlayerDataSaveQueue(DataStore dataStore, long intervalMillis) {
+		this.dataStore = dataStore;
+		this.intervalMillis = Math.max(50L, intervalMillis);
+	}
+
+	/** queues a save. a save already queued for the same player is replaced */
+	void enqueue(UUID playerID, PlayerData playerData) {
+		if (playerID == null) {
+			return;
+		}
+
+		synchronized (this) {
+			if (this.closed) {
+				// late saves during shutdown are written right away
+				this.write(playerID, playerData);
+				return;
+			}
+
+			if (this.executor == null) {
+				this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+					final Thread thread = new Thread(r, "GriefPreventionPlus - PlayerDataSaveQueue");
+					thread.setDaemon(true);
+					return thread;
+				});
+				this.executor.scheduleWithFixedDelay(this::flush, this.intervalMillis, this.intervalMillis, TimeUnit.MILLISECONDS);
+			}
+
+			// queued under the lock: close() can't run its last flush between the closed check and the put
+			this.pending.put(playerID, playerData);
+		}
+	}
+
+	/** drops the queued save of this player, if any. used when the data is being written right away */
+	void discard(UUID playerID) {
+		this.pending.remove(playerID);
+	}
+
+	/** @return the number of players with a save waiting to be written */
+	int size() {
+		return this.pending.size();
+	}
+
+	/** writes all the queued saves on the calling thread */
+	void flush() {
+		for (final UUID playerID : this.pending.keySet()) {
+			// removed before writing: a save queued while writing is kept for the next flush
+			final PlayerData playerData = this.pending.remove(playerID);
+			if (playerData != null) {
+				this.write(playerID, playerData);
+			}
+		}
+	}
+
+	/** stops the writer thread, then writes the saves still queued */
+	void close() {
+		final ScheduledExecutorService executor;
+		synchronized (this) {
+			this.closed = true;
+			executor = this.executor;
+		}
+
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+					GriefPreventionPlus.addLogEntry("Player data save queue didn't stop in 10 seconds");
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		this.flush();
+	}
+
+	private void write(UUID playerID, PlayerData playerData) {
+		try {
+			// ensure player data is already read from storage before trying to save
+			playerData.getAccruedClaimBlocks();
+			playerData.getClaims();
+			this.dataStore.asyncSavePlayerData(playerID, playerData);
+		} catch (final Exception e) {
+			GriefPreventionPlus.addLogEntry("Unable to save data for player " + playerID.toString() + ".  Details:");
+			GriefPreventionPlus.addLogEntry(e.getMessage());
+		}
+	}
+}
@@ -115,7 +115,7 @@ class PlayerEventHandler implements Listener {
 		// if the bucket is being used in a claim, allow for dumping lava closer
 		// to other players
 		final PlayerData playerData = this.dataStore.getPlayerData(player.getUniqueId());
-		final Claim claim = this.dataStore.getClaimAt(block.getLocation(), false, playerData.lastClaim);
+		final Claim claim = this.dataStore.getClaimAt(block, false, playerData.lastClaim);
 		if (claim != null) {
 			minLavaDistance = 3;
 		} else if (GriefPreventionPlus.getInstance().creativeRulesApply(block.getWorld())) {
@@ -281,7 +281,7 @@ class PlayerEventHandler implements Listener {
 			// if the entity is in a claim
 			final Claim claim = this.dataStore.getClaimAt(entity.getLocation(), false);
 			if (claim != null) {
-				if (claim.canOpenContainers(player) != null) {
+				if (!claim.checkOpenContainers(player).isAllowed()) {
 					String message = GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.NoDamageClaimedEntity, claim.getOwnerName());
 					if (player.hasPermission("griefprevention.ignoreclaims")) {
 						message += "  " + GriefPreventionPlus.getInstance().getDataStore().getMessage(Messages.IgnoreClaimsAdvertisement);
@@ -318,7 +318,7 @@ class PlayerEventHandler implements Listener {
 		if (!this.updateLastMovementClaim(event.getPlayer(), event.getFrom(), event.getTo())) {
 			final Location invertedLocation = this.invertedLocation(event.getFrom(), event.getTo());
 			final Claim claim = this.dataStore.getClaimAt(invertedLocation, false);
-			if (claim == null || claim.canAccess(event.getPlayer())==null) {
+			if (claim == null || claim.checkAccess(event.getPlayer()).isAllowed()) {
 				Block b2=invertedLocation.getWorld().getBlockAt(invertedLocation);
 				if (b2.isEmpty() && b2.getRelative(BlockFace.UP).isEmpty()) {
 					event.getPlayer().teleport(invertedLocation);
@@ -419,12 +419,14 @@ class PlayerEventHandler implements Listener {
 
 		if (playerData.lastX!=to.getBlockX() || playerData.lastZ!=to.getBlockZ() || !to.getWorld().getUID().equals(playerData.lastWorld)) {
 			final Claim claim = this.dataStore.getClaimAt(to, false);
-			if (claim != null) {
-				final String noEntryReason = claim.canEnter(player);
-				if (noEntryReason != null) {
-					GriefPreventionPlus.sendMessage(player, TextMode.Err, noEntryReason);
+			// walking inside a claim the player was already allowed to enter doesn't need a new check
+			if ((claim != null) && !playerData.isEntryAllowed(claim)) {
+				final PermissionResult entry = claim.checkEnter(player);
+				if (!entry.isAllowed()) {
+					GriefPreventionPlus.sendMessage(player, TextMode.Err, entry.getMessage());
 					return false;
 				}
+				playerData.setEntryAllowed(claim);
 			}
 
 			if (claim != playerData.lastClaim) {
@@ -554,7 +556,7 @@ class PlayerEventHandler implements Listener {
 							if (playerData == null) {
 								playerData = this.dataStore.getPlayerData(player.getUniqueId());
 							}
-							final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+							final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 							if (claim != null) {
 								final String noBuildReason = claim.canBuild(player, Material.AIR);
 								if (noBuildReason != null) {
@@ -578,7 +580,7 @@ class PlayerEventHandler implements Listener {
 				}
 
 				// otherwise check permissions for the claim the player is in
-				final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+				final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 				if (claim != null) {
 					final String noContainersReason = claim.canOpenContainers(player);
 					if (noContainersReason != null) {
@@ -593,7 +595,7 @@ class PlayerEventHandler implements Listener {
 				if (playerData == null) {
 					playerData = this.dataStore.getPlayerData(player.getUniqueId());
 				}
-				final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, (playerData==null ? null : playerData.lastClaim));
+				final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, (playerData==null ? null : playerData.lastClaim));
 				if (claim!=null) {
 					String reason=claim.canBreak(player, clickedBlockType);
 					if (reason!=null) {
@@ -617,7 +619,7 @@ class PlayerEventHandler implements Listener {
 				if (playerData == null) {
 					playerData = this.dataStore.getPlayerData(player.getUniqueId());
 				}
-				final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+				final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 				if (claim != null) {
 					final String noAccessReason = claim.canAccess(player);
 					if (noAccessReason != null) {
@@ -633,7 +635,7 @@ class PlayerEventHandler implements Listener {
 				if (playerData == null) {
 					playerData = this.dataStore.getPlayerData(player.getUniqueId());
 				}
-				final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+				final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 				if (claim != null) {
 					final String noAccessReason = claim.canAccess(player);
 					if (noAccessReason != null) {
@@ -649,7 +651,7 @@ class PlayerEventHandler implements Listener {
 				if (playerData == null) {
 					playerData = this.dataStore.getPlayerData(player.getUniqueId());
 				}
-				final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+				final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 				if (claim != null) {
 					final String noContainerReason = claim.canAccess(player);
 					if (noContainerReason != null) {
@@ -665,7 +667,7 @@ class PlayerEventHandler implements Listener {
 				if (playerData == null) {
 					playerData = this.dataStore.getPlayerData(player.getUniqueId());
 				}
-				final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+				final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 				if (claim != null) {
 					final String noBuildReason = claim.canBuild(player, clickedBlockType);
 					if (noBuildReason != null) {
@@ -703,7 +705,7 @@ class PlayerEventHandler implements Listener {
 					if (playerData == null) {
 						playerData = this.dataStore.getPlayerData(player.getUniqueId());
 					}
-					final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+					final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 					if (claim != null) {
 						final String noAccessReason = claim.canAccess(player);
 						if (noAccessReason != null) {
@@ -730,7 +732,7 @@ class PlayerEventHandler implements Listener {
 					if (playerData == null) {
 						playerData = this.dataStore.getPlayerData(player.getUniqueId());
 					}
-					final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+					final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 					if (claim == null) {
 						return;
 					}
@@ -766,7 +768,8 @@ class PlayerEventHandler implements Listener {
 			// if holding shift (sneaking), show all claims in area
 			if (player.isSneaking() && player.hasPermission("griefprevention.visualizenearbyclaims")) {
 				// find nearby claims
-				final Collection<Claim> claims = this.dataStore.getNearbyClaims(player.getLocation()).values();
+				final Collection<Claim> claims = new ArrayList<Claim>();
+				this.dataStore.forEachNearbyClaim(player.getLocation(), claims::add);
 
 				// visualize boundaries
 				final Visualization visualization = Visualization.fromClaims(claims, player.getEyeLocation().getBlockY(), VisualizationType.Claim, player.getLocation());
@@ -797,7 +800,7 @@ class PlayerEventHandler implements Listener {
 				return;
 			}
 
-			Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+			Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 
 			// no claim case
 			if (claim == null) {
@@ -867,7 +870,7 @@ class PlayerEventHandler implements Listener {
 			if ((playerData.shovelMode == ShovelMode.RestoreNature) || (playerData.shovelMode == ShovelMode.RestoreNatureAggressive)) {
 				// if the clicked block is in a claim, visualize that claim and
 				// deliver an error message
-				final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), false, playerData.lastClaim);
+				final Claim claim = this.dataStore.getClaimAt(clickedBlock, false, playerData.lastClaim);
 				if (claim != null) {
 					GriefPreventionPlus.sendMessage(player, TextMode.Err, Messages.BlockClaimed, claim.getOwnerName());
 					final Visualization visualization = Visualization.FromClaim(claim, clickedBlock.getY(), VisualizationType.ErrorClaim, player.getLocation());
@@ -963,7 +966,7 @@ class PlayerEventHandler implements Listener {
 							final Block block = centerBlock.getWorld().getBlockAt(x, y, z);
 
 							// respect claims
-							final Claim claim = this.dataStore.getClaimAt(block.getLocation(), false, cachedClaim);
+							final Claim claim = this.dataStore.getClaimAt(block, false, cachedClaim);
 							if (claim != null) {
 								cachedClaim = claim;
 								break;
@@ -1128,7 +1131,7 @@ class PlayerEventHandler implements Listener {
 					final Claim newClaim = new Claim(oldClaim.getWorldUID(), newlx, newlz, newgx, newgz, null, null, null, null, null);
 
 					// if the new claim is smaller
-					if (!newClaim.contains(oldClaim.getLesserBoundaryCorner(), true, false) || !newClaim.contains(oldClaim.getGreaterBoundaryCorner(), true, false)) {
+					if (!newClaim.contains(oldClaim.getWorldUID(), oldClaim.lesserX, 0, oldClaim.lesserZ, true, false) || !newClaim.contains(oldClaim.getWorldUID(), oldClaim.greaterX, 0, oldClaim.greaterZ, true, false)) {
 						smaller = true;
 						// remove surface fluids about to be unclaimed
 						oldClaim.removeSurfaceFluids(newClaim);
@@ -1211,7 +1214,7 @@ class PlayerEventHandler implements Listener {
 			}
 			// otherwise, since not currently resizing a claim, must be starting
 			// a resize, creating a new claim, or creating a subdivision
-			final Claim claim = this.dataStore.getClaimAt(clickedBlock.getLocation(), true, playerData.lastClaim);
+			final Claim claim = this.dataStore.getClaimAt(clickedBlock, true, playerData.lastClaim);
 
 			// if within an existing claim, he's not creating a new one
 			if (claim != null) {
@@ -1219,7 +1222,7 @@ class PlayerEventHandler implements Listener {
 				final String noEditReason = claim.canEdit(player);
 				if (noEditReason == null) {
 					// if he clicked on a corner, start resizing it
-					if (((clickedBlock.getX() == claim.getLesserBoundaryCorner().getBlockX()) || (clickedBlock.getX() == claim.getGreaterBoundaryCorner().getBlockX())) && ((clickedBlock.getZ() == claim.getLesserBoundaryCorner().getBlockZ()) || (clickedBlock.getZ() == claim.getGreaterBoundaryCorner().getBlockZ()))) {
+					if (((clickedBlock.getX() == claim.lesserX) || (clickedBlock.getX() == claim.greaterX)) && ((clickedBlock.getZ() == claim.lesserZ) || (clickedBlock.getZ() == claim.greaterZ))) {
 						playerData.claimResizing = claim;
 
 						playerData.lastShovelLocation = clickedBlock.getLocation();
@@ -1262,6 +1265,10 @@ class PlayerEventHandler implements Listener {
 							final ClaimResult result = this.dataStore.newClaim(player.getWorld().getUID(), playerData.lastShovelLocation.getBlockX(), playerData.lastShovelLocation.getBlockZ(), clickedBlock.getX(), clickedBlock.getZ(), null, playerData.claimSubdividing, null, player);
 							
 							switch(result.getResult()) {
+								case STORAGE: {
+									GriefPreventionPlus.sendMessage(player, TextMode.Err, Messages.CreateClaimFailStorage);
+									break;
+								}
 								case EVENT: {
 									// show the message set by the event
 									if (result.getReason()!=null) {
@@ -1396,6 +1403,10 @@ class PlayerEventHandler implements Listener {
 				final ClaimResult result = this.dataStore.newClaim(player.getWorld().getUID(), lastShovelLocation.getBlockX(), lastShovelLocation.getBlockZ(), clickedBlock.getX(), clickedBlock.getZ(), playerID, null, null, player);
 
 				switch(result.getResult()) {
+					case STORAGE: {
+						GriefPreventionPlus.sendMessage(player, TextMode.Err, Messages.CreateClaimFailStorage);
+						break;
+					}
 					case EVENT: {
 						// show the message set by the event
 						if (result.getReason()!=null) {
@@ -1444,6 +1455,8 @@ class PlayerEventHandler implements Listener {
 		// note login time
 		final PlayerData playerData = this.dataStore.getPlayerData(playerID);
 		playerData.lastSeen = System.currentTimeMillis();
+		playerData.invalidatePermissionCache();
+		playerData.getGroupBonusBlocks(player);
 		this.dataStore.savePlayerData(playerID, playerData);
 		
 		// if player has never played on the server before...
@@ -1461,6 +1474,12 @@ class PlayerEventHandler implements Listener {
 		GriefPreventionPlus.cacheUUIDNamePair(player.getUniqueId(), player.getName());
 	}
 
+	// permissions can be different per world
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+		this.dataStore.getPlayerData(event.getPlayer().getUniqueId()).invalidatePermissionCache();
+	}
+
 	// when a player teleports via a portal
 	@EventHandler(ignoreCancelled = true, priority = EventPriority.HIGH)
 	void onPlayerPortal(PlayerPortalEvent event) {
@@ -1512,7 +1531,7 @@ class PlayerEventHandler implements Listener {
 					// check for a land claim and the player's permission that
 					// land claim
 					final Claim claim = this.dataStore.getClaimAt(destination, false);
-					if ((claim != null) && (claim.canBuild(player, Material.PORTAL) != null)) {
+					if ((claim != null) && !claim.checkBuild(player, Material.PORTAL).isAllowed()) {
 						// cancel and inform about the reason
 						event.setCancelled(true);
 						GriefPreventionPlus.sendMessage(player, TextMode.Err, Messages.NoBuildPortalPermission, claim.getOwnerName());
@@ -0,0 +1,83 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/** read only view of the claim index with the layout of the old DataStore.posClaims map:
+ *  coordsHashCode(x >> 8, z >> 8) -> (claim id -> top level claim), for all worlds together.
+ *  it's only kept for plugins that read posClaims: every call queries the index, and
+ *  entrySet() builds a full copy. keys can be decoded for cells between -32768 and 32767 */
+@SuppressWarnings("deprecation")
+class PosClaimsView extends AbstractMap<Integer, Map<Integer, Claim>> {
+	private final DataStore dataStore;
+
+	PosClaimsView(DataStore dataStore) {
+		this.dataStore = dataStore;
+	}
+
+	@Override
+	public Map<Integer, Claim> get(Object key) {
+		if (!(key instanceof Integer)) {
+			return null;
+		}
+
+		// coordsHashCode(x, z) is z ^ (x << 16)
+		final int hash = (Integer) key;
+		final int cellZ = (short) hash;
+		final int cellX = (short) ((hash >>> 16) ^ (cellZ >>> 16));
+		final Map<Integer, Claim> claims = this.cell(cellX, cellZ);
+		return claims.isEmpty() ? null : claims;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return this.get(key) != null;
+	}
+
+	@Override
+	public Set<Entry<Integer, Map<Integer, Claim>>> entrySet() {
+		final Map<Integer, Map<Integer, Claim>> copy = new HashMap<Integer, Map<Integer, Claim>>();
+		for (final Claim claim : this.dataStore.claims.values()) {
+			if (claim.getParent() != null) {
+				continue;
+			}
+			for (int i = claim.lesserX >> 8; i <= (claim.greaterX >> 8); i++) {
+				for (int j = claim.lesserZ >> 8; j <= (claim.greaterZ >> 8); j++) {
+					copy.computeIfAbsent(DataStore.coordsHashCode(i, j), k -> new HashMap<Integer, Claim>()).put(claim.id, claim);
+				}
+			}
+		}
+		return Collections.unmodifiableMap(copy).entrySet();
+	}
+
+	private Map<Integer, Claim> cell(int cellX, int cellZ) {
+		final Map<Integer, Claim> claims = new HashMap<Integer, Claim>();
+		for (final UUID world : this.dataStore.claimIndex.worlds()) {
+			this.dataStore.claimIndex.forEachIntersecting(world, cellX << 8, cellZ << 8, (cellX << 8) + 255, (cellZ << 8) + 255, claim -> claims.put(claim.id, claim));
+		}
+		return claims;
+	}
+}
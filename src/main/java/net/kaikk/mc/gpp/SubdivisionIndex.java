@@ -0,0 +1,97 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** grid index of the subdivisions of a top level claim
+ *  the grid covers the top level claim with at most 64x64 cells. it's immutable:
+ *  it's built for one subdivisionsVersion of the top level claim, a change makes it stale */
+class SubdivisionIndex {
+	// below this number of subdivisions a linear scan is fast enough
+	static final int MIN_CHILDREN = 8;
+	static final int MAX_CELLS = 64;
+
+	private static final Claim[] NO_CLAIMS = new Claim[0];
+
+	private final int originX, originZ, shift, sizeX, sizeZ;
+	private final Claim[][] cells;
+	final int version;
+
+	SubdivisionIndex(Claim claim, List<Claim> children, int version) {
+		this.originX = claim.lesserX;
+		this.originZ = claim.lesserZ;
+
+		int shift = 4;
+		while ((Math.max(claim.greaterX - claim.lesserX, claim.greaterZ - claim.lesserZ) >> shift) >= MAX_CELLS) {
+			shift++;
+		}
+		this.shift = shift;
+		this.sizeX = ((claim.greaterX - claim.lesserX) >> shift) + 1;
+		this.sizeZ = ((claim.greaterZ - claim.lesserZ) >> shift) + 1;
+
+		@SuppressWarnings("unchecked")
+		final List<Claim>[] lists = new List[this.sizeX * this.sizeZ];
+		for (final Claim child : children) {
+			// subdivisions can reach outside of a shrunk parent, clamp them on the grid
+			final int lx = this.clampX(child.lesserX), gx = this.clampX(child.greaterX);
+			final int lz = this.clampZ(child.lesserZ), gz = this.clampZ(child.greaterZ);
+			for (int i = lx; i <= gx; i++) {
+				for (int j = lz; j <= gz; j++) {
+					final int index = (i * this.sizeZ) + j;
+					if (lists[index] == null) {
+						lists[index] = new ArrayList<Claim>(2);
+					}
+					lists[index].add(child);
+				}
+			}
+		}
+
+		this.cells = new Claim[lists.length][];
+		for (int i = 0; i < lists.length; i++) {
+			this.cells[i] = lists[i] == null ? NO_CLAIMS : lists[i].toArray(new Claim[lists[i].size()]);
+		}
+		this.version = version;
+	}
+
+	/** @return the first subdivision (in children order) containing the specified block column, or null */
+	Claim get(int x, int z) {
+		final int i = (x - this.originX) >> this.shift, j = (z - this.originZ) >> this.shift;
+		if ((i < 0) || (j < 0) || (i >= this.sizeX) || (j >= this.sizeZ)) {
+			return null;
+		}
+
+		for (final Claim child : this.cells[(i * this.sizeZ) + j]) {
+			if (child.containsColumn(x, z)) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	private int clampX(int x) {
+		return Math.max(0, Math.min(this.sizeX - 1, (x - this.originX) >> this.shift));
+	}
+
+	private int clampZ(int z) {
+		return Math.max(0, Math.min(this.sizeZ - 1, (z - this.originZ) >> this.shift));
+	}
+}
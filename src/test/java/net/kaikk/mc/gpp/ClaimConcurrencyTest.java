@@ -0,0 +1,195 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/** one writer changes claims the way the main thread does, while readers query them from other threads */
+public class ClaimConcurrencyTest {
+	private static final UUID WORLD = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+	private static final UUID PLAYER = UUID.fromString("00000000-0000-0000-0000-000000000001");
+	private static final int READERS = 3;
+	private static final long MILLIS = 1000;
+
+	private static Claim claim(int lesserX, int lesserZ, int greaterX, int greaterZ) {
+		return new Claim(WORLD, lesserX, lesserZ, greaterX, greaterZ, null, null, null, null, 1);
+	}
+
+	@Test
+	public void indexLookupsDuringChanges() throws Throwable {
+		final ClaimIndex index = new ClaimIndex();
+		// never changed: readers must always find them
+		final List<Claim> stable = new ArrayList<Claim>();
+		for (int i = 0; i < 50; i++) {
+			final Claim claim = claim(i * 1000, 0, (i * 1000) + 99, 99);
+			stable.add(claim);
+			index.add(claim);
+		}
+
+		// added, removed and resized in place, on the cells between the stable claims
+		final List<Claim> churn = new ArrayList<Claim>();
+		for (int i = 0; i < 50; i++) {
+			churn.add(claim((i * 1000) + 500, 0, (i * 1000) + 599, 99));
+		}
+
+		run(() -> {
+			for (int i = 0; i < churn.size(); i++) {
+				final Claim claim = churn.get(i);
+				index.add(claim);
+				index.remove(claim);
+				final int x = (i * 1000) + 200 + ((claim.lesserX + 1) % 300);
+				claim.setLocation(WORLD, x, 0, x + 99, 99);
+				index.add(claim);
+				index.remove(claim);
+			}
+		}, () -> {
+			final Set<Claim> reported = new HashSet<Claim>();
+			for (final Claim claim : stable) {
+				assertEquals(claim, index.get(WORLD, claim.lesserX + 50, 50));
+				assertNull(index.get(WORLD, claim.lesserX + 150, 50));
+			}
+			final List<Claim> all = new ArrayList<Claim>();
+			index.forEachIntersecting(WORLD, 0, 0, 50000, 99, all::add);
+			reported.addAll(all);
+			assertEquals("claims reported more than once", all.size(), reported.size());
+			assertEquals(true, reported.containsAll(stable));
+		});
+	}
+
+	@Test
+	public void cornersAreNeverTorn() throws Throwable {
+		// a torn read of these two locations can be (0,0)~(29,29), which contains (15,15)
+		final Claim claim = claim(0, 0, 9, 9);
+		run(() -> {
+			claim.setLocation(WORLD, 20, 20, 29, 29);
+			claim.setLocation(WORLD, 0, 0, 9, 9);
+		}, () -> {
+			for (int i = 0; i < 1000; i++) {
+				assertEquals(false, claim.containsColumn(15, 15));
+			}
+		});
+	}
+
+	@Test
+	public void subdivisionsDuringChanges() throws Throwable {
+		final Claim top = claim(0, 0, 999, 999);
+		// enough subdivisions for the grid index
+		final List<Claim> stable = new ArrayList<Claim>();
+		for (int i = 0; i < 10; i++) {
+			final Claim child = claim(i * 100, 0, (i * 100) + 9, 9);
+			child.setParent(top);
+			top.addChild(child);
+			stable.add(child);
+		}
+		final Claim moving = claim(0, 500, 9, 509);
+		moving.setParent(top);
+
+		run(() -> {
+			top.addChild(moving);
+			moving.setLocation(WORLD, 500, 500, 509, 509);
+			top.removeChild(moving);
+			moving.setLocation(WORLD, 0, 500, 9, 509);
+		}, () -> {
+			int linked = 0;
+			for (final Claim child : top.getChildren()) {
+				if (child.getParent() == top) {
+					linked++;
+				}
+			}
+			assertEquals(true, linked >= stable.size());
+			for (final Claim child : stable) {
+				assertEquals(child, top.getChildAt(child.lesserX + 5, 5));
+			}
+			assertNull(top.getChildAt(250, 250));
+		});
+	}
+
+	@Test
+	public void permissionsDuringChanges() throws Throwable {
+		final Claim claim = claim(0, 0, 9, 9);
+		claim.setMemoryPermission(PLAYER, ClaimPermission.BUILD);
+		claim.setMemoryPermission("#stable", ClaimPermission.BUILD);
+
+		run(() -> {
+			for (int i = 0; i < 20; i++) {
+				claim.setMemoryPermission(new UUID(0, i + 100), ClaimPermission.ACCESS);
+				claim.setMemoryPermission("#fake" + i, ClaimPermission.ACCESS);
+			}
+			for (int i = 0; i < 20; i++) {
+				claim.unsetPermission(new UUID(0, i + 100));
+				claim.unsetPermission("#fake" + i);
+			}
+		}, () -> {
+			assertEquals(ClaimPermission.BUILD.perm, (int) claim.getPermission(PLAYER));
+			assertEquals(ClaimPermission.BUILD.perm, claim.getFakePlayerTrie().match("stableMiner") & ClaimPermission.BUILD.perm);
+		});
+	}
+
+	/** runs the writer in a loop on this thread and the readers on other threads, then rethrows the first failure */
+	private static void run(Runnable writer, Runnable reader) throws Throwable {
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		final CountDownLatch started = new CountDownLatch(READERS);
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < READERS; i++) {
+			final Thread thread = new Thread(() -> {
+				started.countDown();
+				try {
+					while (!done.get() && (failure.get() == null)) {
+						reader.run();
+					}
+				} catch (final Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+
+		started.await();
+		final long end = System.currentTimeMillis() + MILLIS;
+		try {
+			while ((System.currentTimeMillis() < end) && (failure.get() == null)) {
+				writer.run();
+			}
+		} finally {
+			done.set(true);
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+		}
+
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+	}
+}
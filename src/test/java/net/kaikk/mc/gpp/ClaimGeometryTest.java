@@ -0,0 +1,117 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class ClaimGeometryTest {
+	private static final UUID WORLD = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+
+	private static Claim claim(UUID world, int lesserX, int lesserZ, int greaterX, int greaterZ) {
+		return new Claim(world, lesserX, lesserZ, greaterX, greaterZ, null, null, null, null, 1);
+	}
+
+	@Test
+	public void overlapsMatchesBlockScan() {
+		final Random random = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			final Claim a = randomClaim(random), b = randomClaim(random);
+
+			boolean shared = false;
+			for (int x = a.lesserX; (x <= a.greaterX) && !shared; x++) {
+				for (int z = a.lesserZ; z <= a.greaterZ; z++) {
+					if (b.contains(WORLD, x, 0, z, true, false)) {
+						shared = true;
+						break;
+					}
+				}
+			}
+
+			assertEquals(a + " " + b, shared, a.overlaps(b));
+			assertEquals(a + " " + b, shared, b.overlaps(a));
+		}
+	}
+
+	@Test
+	public void worldsAreComparedByValue() {
+		final Claim a = claim(WORLD, 0, 0, 10, 10);
+		// same id, different instance
+		final UUID sameWorld = new UUID(WORLD.getMostSignificantBits(), WORLD.getLeastSignificantBits());
+		final UUID otherWorld = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+		assertTrue(a.contains(sameWorld, 5, 0, 5, true, false));
+		assertFalse(a.contains(otherWorld, 5, 0, 5, true, false));
+		assertTrue(a.overlaps(claim(sameWorld, 10, 10, 20, 20)));
+		assertFalse(a.overlaps(claim(otherWorld, 10, 10, 20, 20)));
+	}
+
+	@Test
+	public void hotMethodsDontAllocate() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+		final Claim a = claim(WORLD, -100, -100, 100, 100);
+		final Claim b = claim(WORLD, 50, 50, 300, 300);
+		final UUID sameWorld = new UUID(WORLD.getMostSignificantBits(), WORLD.getLeastSignificantBits());
+
+		// warm up, so the measured calls run compiled code
+		int hits = run(a, b, sameWorld, 200000);
+		final long threadId = Thread.currentThread().getId();
+		threads.getThreadAllocatedBytes(threadId);
+
+		final long before = threads.getThreadAllocatedBytes(threadId);
+		hits += run(a, b, sameWorld, 1000000);
+		final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		assertTrue(hits > 0);
+		// a single small object per call would be megabytes
+		assertTrue("allocated " + allocated + " bytes", allocated < (64 * 1024));
+	}
+
+	private static int run(Claim a, Claim b, UUID world, int calls) {
+		int hits = 0;
+		for (int i = 0; i < calls; i++) {
+			final int x = (i % 500) - 250, z = (i % 370) - 185;
+			if (a.contains(world, x, 0, z, true, false)) {
+				hits++;
+			}
+			if (a.overlaps(b)) {
+				hits++;
+			}
+		}
+		return hits;
+	}
+
+	private static Claim randomClaim(Random random) {
+		final int lesserX = random.nextInt(60) - 30, lesserZ = random.nextInt(60) - 30;
+		return claim(WORLD, lesserX, lesserZ, lesserX + random.nextInt(20), lesserZ + random.nextInt(20));
+	}
+}
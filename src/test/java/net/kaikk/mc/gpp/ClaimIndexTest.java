@@ -0,0 +1,188 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class ClaimIndexTest {
+	private static final UUID WORLD_A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+	private static final UUID WORLD_B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+	private static int nextId = 1;
+
+	static Claim claim(UUID world, int lesserX, int lesserZ, int greaterX, int greaterZ) {
+		return new Claim(world, lesserX, lesserZ, greaterX, greaterZ, null, null, null, null, nextId++);
+	}
+
+	@Test
+	public void worldsArePartitioned() {
+		final ClaimIndex index = new ClaimIndex();
+		final Claim a = claim(WORLD_A, 0, 0, 99, 99);
+		final Claim b = claim(WORLD_B, 0, 0, 99, 99);
+		index.add(a);
+		index.add(b);
+
+		assertSame(a, index.get(WORLD_A, 50, 50));
+		assertSame(b, index.get(WORLD_B, 50, 50));
+		assertNull(index.get(UUID.randomUUID(), 50, 50));
+	}
+
+	@Test
+	public void distantCellsDontCollide() {
+		// coordsHashCode(0, 0) == coordsHashCode(65536, 0): the old map put these in the same bucket
+		final ClaimIndex index = new ClaimIndex();
+		final Claim near = claim(WORLD_A, 10, 10, 20, 20);
+		final Claim far = claim(WORLD_A, (65536 << 8) + 10, 10, (65536 << 8) + 20, 20);
+		index.add(near);
+		index.add(far);
+
+		assertSame(near, index.get(WORLD_A, 15, 15));
+		assertSame(far, index.get(WORLD_A, (65536 << 8) + 15, 15));
+		assertNull(index.get(WORLD_A, (65536 << 8) + 25, 15));
+	}
+
+	@Test
+	public void removedClaimsAreNotFound() {
+		final ClaimIndex index = new ClaimIndex();
+		final Claim a = claim(WORLD_A, -300, -300, -200, -200);
+		final Claim b = claim(WORLD_A, -199, -300, -100, -200);
+		index.add(a);
+		index.add(b);
+		index.remove(a);
+
+		assertNull(index.get(WORLD_A, -250, -250));
+		assertSame(b, index.get(WORLD_A, -150, -250));
+	}
+
+	@Test
+	public void randomLayoutsMatchBruteForce() {
+		final Random random = new Random(42);
+		for (int round = 0; round < 10; round++) {
+			final ClaimIndex index = new ClaimIndex();
+			final List<Claim> claims = randomLayout(random, 300);
+			for (final Claim claim : claims) {
+				index.add(claim);
+			}
+			assertMatchesBruteForce(random, index, claims);
+
+			// remove half of them, the other half must still be found
+			final List<Claim> kept = new ArrayList<Claim>();
+			for (final Claim claim : claims) {
+				if (random.nextBoolean()) {
+					index.remove(claim);
+				} else {
+					kept.add(claim);
+				}
+			}
+			assertMatchesBruteForce(random, index, kept);
+		}
+	}
+
+	/** @return non overlapping claims in two worlds, from a few blocks up to claims that need the coarsest levels, around the origin */
+	private static List<Claim> randomLayout(Random random, int count) {
+		final List<Claim> claims = new ArrayList<Claim>();
+		while (claims.size() < count) {
+			final int size;
+			final int kind = random.nextInt(20);
+			if (kind == 0) {
+				size = 20000 + random.nextInt(200000);
+			} else if (kind < 4) {
+				size = 300 + random.nextInt(3000);
+			} else {
+				size = 1 + random.nextInt(120);
+			}
+			final int lesserX = random.nextInt(600000) - 300000;
+			final int lesserZ = random.nextInt(600000) - 300000;
+			final Claim candidate = claim(random.nextBoolean() ? WORLD_A : WORLD_B, lesserX, lesserZ, lesserX + random.nextInt(size), lesserZ + random.nextInt(size));
+
+			boolean overlaps = false;
+			for (final Claim claim : claims) {
+				if (overlaps(claim, candidate)) {
+					overlaps = true;
+					break;
+				}
+			}
+			if (!overlaps) {
+				claims.add(candidate);
+			}
+		}
+		return claims;
+	}
+
+	private static void assertMatchesBruteForce(Random random, ClaimIndex index, List<Claim> claims) {
+		// points on and around the corners of the claims, and random points
+		for (final Claim claim : claims) {
+			for (final int x : new int[] { claim.lesserX - 1, claim.lesserX, claim.greaterX, claim.greaterX + 1 }) {
+				for (final int z : new int[] { claim.lesserZ - 1, claim.lesserZ, claim.greaterZ, claim.greaterZ + 1 }) {
+					assertGet(index, claims, claim.getWorldUID(), x, z);
+				}
+			}
+		}
+		for (int i = 0; i < 2000; i++) {
+			assertGet(index, claims, random.nextBoolean() ? WORLD_A : WORLD_B, random.nextInt(700000) - 350000, random.nextInt(700000) - 350000);
+		}
+
+		// areas from a single block up to areas wider than the biggest claims
+		for (int i = 0; i < 300; i++) {
+			final UUID world = random.nextBoolean() ? WORLD_A : WORLD_B;
+			final int size = i % 3 == 0 ? random.nextInt(4) : (i % 3 == 1 ? random.nextInt(5000) : random.nextInt(40000));
+			final int minX = random.nextInt(700000) - 350000, minZ = random.nextInt(700000) - 350000;
+			final int maxX = minX + size, maxZ = minZ + random.nextInt(size + 1);
+
+			final Set<Claim> expected = new HashSet<Claim>();
+			for (final Claim claim : claims) {
+				if (claim.getWorldUID().equals(world) && (claim.lesserX <= maxX) && (claim.greaterX >= minX) && (claim.lesserZ <= maxZ) && (claim.greaterZ >= minZ)) {
+					expected.add(claim);
+				}
+			}
+
+			final List<Claim> reported = new ArrayList<Claim>();
+			index.forEachIntersecting(world, minX, minZ, maxX, maxZ, reported::add);
+			assertEquals("claims reported more than once", reported.size(), new HashSet<Claim>(reported).size());
+			assertEquals(expected, new HashSet<Claim>(reported));
+		}
+	}
+
+	private static void assertGet(ClaimIndex index, List<Claim> claims, UUID world, int x, int z) {
+		Claim expected = null;
+		for (final Claim claim : claims) {
+			if (claim.getWorldUID().equals(world) && (x >= claim.lesserX) && (x <= claim.greaterX) && (z >= claim.lesserZ) && (z <= claim.greaterZ)) {
+				expected = claim;
+				break;
+			}
+		}
+		assertSame("claim at " + x + "," + z, expected, index.get(world, x, z));
+	}
+
+	private static boolean overlaps(Claim a, Claim b) {
+		return a.getWorldUID().equals(b.getWorldUID()) && (a.lesserX <= b.greaterX) && (a.greaterX >= b.lesserX) && (a.lesserZ <= b.greaterZ) && (a.greaterZ >= b.lesserZ);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class ClaimPermissionNodeTest {
+	private static Claim claim(Integer id) {
+		return new Claim(UUID.fromString("00000000-0000-0000-0000-00000000000a"), 0, 0, 10, 10, null, null, null, null, id);
+	}
+
+	@Test
+	public void nodesMatchTheOldFormat() {
+		final Claim claim = claim(27);
+		assertEquals("gpp.c27.m", claim.getPermissionNode(ClaimPermission.MANAGE));
+		assertEquals("gpp.c27.b", claim.getPermissionNode(ClaimPermission.BUILD));
+		assertEquals("gpp.c27.c", claim.getPermissionNode(ClaimPermission.CONTAINER));
+		assertEquals("gpp.c27.a", claim.getPermissionNode(ClaimPermission.ACCESS));
+		assertEquals("gpp.c27.e", claim.getPermissionNode(ClaimPermission.ENTRY));
+	}
+
+	@Test
+	public void nodesAreBuiltOnce() {
+		final Claim claim = claim(27);
+		for (final ClaimPermission level : ClaimPermission.values()) {
+			assertSame(claim.getPermissionNode(level), claim.getPermissionNode(level));
+		}
+	}
+
+	@Test
+	public void nodesFollowTheId() {
+		// claims created in game get their id after the constructor
+		final Claim claim = claim(null);
+		claim.getPermissionNode(ClaimPermission.BUILD);
+		claim.setID(1234);
+		assertEquals("gpp.c1234.b", claim.getPermissionNode(ClaimPermission.BUILD));
+	}
+
+	@Test
+	public void lookupsDontAllocate() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+		final Claim claim = claim(27);
+		final ClaimPermission[] levels = ClaimPermission.values();
+		int length = run(claim, levels, 200000);
+		final long threadId = Thread.currentThread().getId();
+		threads.getThreadAllocatedBytes(threadId);
+
+		final long before = threads.getThreadAllocatedBytes(threadId);
+		length += run(claim, levels, 1000000);
+		final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		assertTrue(length > 0);
+		// the old "gpp.c" + id + ".b" concatenation was two strings per call
+		assertTrue("allocated " + allocated + " bytes", allocated < (64 * 1024));
+	}
+
+	private static int run(Claim claim, ClaimPermission[] levels, int calls) {
+		int length = 0;
+		for (int i = 0; i < calls; i++) {
+			length += claim.getPermissionNode(levels[i % levels.length]).length();
+		}
+		return length;
+	}
+}
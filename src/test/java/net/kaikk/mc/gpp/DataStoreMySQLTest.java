@@ -0,0 +1,81 @@
+/*
+    GriefPreventionPlus Server Plugin for Minecraft
+    Copyright (C) 2015 Antonino Kai Pocorobba
+    (forked from GriefPrevention by Ryan Hamshire)
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package net.kaikk.mc.gpp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class DataStoreMySQLTest {
+	private static final UUID WORLD = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+
+	private static Claim claim(int id, int lesserX) {
+		return new Claim(WORLD, lesserX, 0, lesserX + 9, 9, null, null, null, null, id);
+	}
+
+	@Test
+	public void subclaimsAreLinkedInLoadOrder() {
+		final Claim top1 = claim(1, 0), top2 = claim(2, 100);
+		final Map<Integer, Claim> claims = new HashMap<Integer, Claim>();
+		claims.put(1, top1);
+		claims.put(2, top2);
+
+		// rows come in table order: a subclaim can come before its top level claim
+		final Claim a = claim(3, 101), b = claim(4, 1), c = claim(5, 103), orphan = claim(6, 500);
+		final Map<Claim, Integer> subclaims = new LinkedHashMap<Claim, Integer>();
+		subclaims.put(a, 2);
+		subclaims.put(b, 1);
+		subclaims.put(orphan, 9);
+		subclaims.put(c, 2);
+
+		assertEquals(Collections.singletonList(orphan), DataStoreMySQL.linkSubclaims(subclaims, claims));
+		assertEquals(Arrays.asList(a, c), top2.getChildren());
+		assertEquals(Collections.singletonList(b), top1.getChildren());
+		assertSame(top2, a.getParent());
+		assertSame(top1, b.getParent());
+		assertNull(orphan.getParent());
+	}
+
+	@Test
+	public void griefPreventionUUIDsAreParsed() {
+		assertEquals(UUID.fromString("0f8a3c3e-5b1d-4c8e-9a1f-2b3c4d5e6f70"), DataStoreMySQL.parseGPUUID("0f8a3c3e-5b1d-4c8e-9a1f-2b3c4d5e6f70"));
+		// old name based rows, and strings that would have broken the concatenated SQL
+		assertNull(DataStoreMySQL.parseGPUUID("Notch"));
+		assertNull(DataStoreMySQL.parseGPUUID("0f8a3c3e-5b1d-4c8e-9a1f-2b3c4d5e6f7'"));
+		assertNull(DataStoreMySQL.parseGPUUID("0f8a3c3e5b1d4c8e9a1f2b3c4d5e6f70----"));
+	}
+
+	@Test
+	public void griefPreventionCornersAreParsed() {
+		assertArrayEquals(new int[] { -10, 20, 30, 40 }, DataStoreMySQL.parseGPCorners("world;-10;64;20".split(";"), "world;30;64;40".split(";")));
+		assertNull(DataStoreMySQL.parseGPCorners("world;-10;64".split(";"), "world;30;64;40".split(";")));
+		assertNull(DataStoreMySQL.parseGPCorners("world;-10;64;20".split(";"), "world;30);64;40".split(";")));
+	}
+}